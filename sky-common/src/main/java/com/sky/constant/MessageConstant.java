@@ -23,5 +23,11 @@ public class MessageConstant {
     public static final String DISH_BE_RELATED_BY_SETMEAL = "当前菜品关联了套餐,不能删除";
     public static final String ORDER_STATUS_ERROR = "订单状态错误";
     public static final String ORDER_NOT_FOUND = "订单不存在";
+    public static final String REPORT_GRANULARITY_ERROR = "统计粒度错误";
+    public static final String REPORT_DATE_RANGE_ERROR = "统计时间区间错误";
+    public static final String REPORT_TOO_MANY_POINTS = "统计时间区间过长，请选择更大的统计粒度";
+    public static final String EXPORT_JOB_NOT_FOUND = "导出任务不存在或已过期";
+    public static final String EXPORT_JOB_NOT_READY = "导出任务尚未完成";
+    public static final String EXPORT_JOB_REJECTED = "导出任务过多，请稍后再试";
 
 }
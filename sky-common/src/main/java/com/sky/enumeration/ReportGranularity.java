@@ -0,0 +1,123 @@
+package com.sky.enumeration;
+
+import com.sky.constant.MessageConstant;
+import com.sky.exception.ReportBusinessException;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * 统计报表的时间粒度
+ * 每个时间段以开始时间标识，与mapper中按粒度分组的表达式保持一致：周从周一开始，月从1号开始
+ */
+public enum ReportGranularity {
+
+    /**
+     * 按小时统计
+     */
+    HOUR("yyyy-MM-dd HH:00") {
+        @Override
+        public LocalDateTime truncate(LocalDateTime time) {
+            return time.truncatedTo(ChronoUnit.HOURS);
+        }
+
+        @Override
+        public LocalDateTime next(LocalDateTime bucket) {
+            return bucket.plusHours(1);
+        }
+    },
+
+    /**
+     * 按天统计
+     */
+    DAY("yyyy-MM-dd") {
+        @Override
+        public LocalDateTime truncate(LocalDateTime time) {
+            return time.truncatedTo(ChronoUnit.DAYS);
+        }
+
+        @Override
+        public LocalDateTime next(LocalDateTime bucket) {
+            return bucket.plusDays(1);
+        }
+    },
+
+    /**
+     * 按周统计
+     */
+    WEEK("yyyy-MM-dd") {
+        @Override
+        public LocalDateTime truncate(LocalDateTime time) {
+            return time.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        }
+
+        @Override
+        public LocalDateTime next(LocalDateTime bucket) {
+            return bucket.plusWeeks(1);
+        }
+    },
+
+    /**
+     * 按月统计
+     */
+    MONTH("yyyy-MM") {
+        @Override
+        public LocalDateTime truncate(LocalDateTime time) {
+            return time.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+        }
+
+        @Override
+        public LocalDateTime next(LocalDateTime bucket) {
+            return bucket.plusMonths(1);
+        }
+    };
+
+    private final DateTimeFormatter labelFormatter;
+
+    ReportGranularity(String labelPattern) {
+        this.labelFormatter = DateTimeFormatter.ofPattern(labelPattern);
+    }
+
+    /**
+     * 获取时间所在时间段的开始时间
+     * @param time
+     * @return
+     */
+    public abstract LocalDateTime truncate(LocalDateTime time);
+
+    /**
+     * 获取下一个时间段的开始时间
+     * @param bucket 时间段的开始时间
+     * @return
+     */
+    public abstract LocalDateTime next(LocalDateTime bucket);
+
+    /**
+     * 报表中显示的时间段名称，例如 2022-10-01 或 2022-10
+     * @param bucket 时间段的开始时间
+     * @return
+     */
+    public String label(LocalDateTime bucket) {
+        return labelFormatter.format(bucket);
+    }
+
+    /**
+     * 根据请求参数解析统计粒度，不区分大小写，为空时按天统计
+     * @param value
+     * @return
+     */
+    public static ReportGranularity of(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return DAY;
+        }
+        for (ReportGranularity granularity : values()) {
+            if (granularity.name().equalsIgnoreCase(value.trim())) {
+                return granularity;
+            }
+        }
+        throw new ReportBusinessException(MessageConstant.REPORT_GRANULARITY_ERROR);
+    }
+}
@@ -0,0 +1,19 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.export-job")
+@Data
+public class ExportJobProperties {
+
+    private String dir = "data/export"; //导出文件存放目录
+    private int poolSize = 2; //同时执行的导出任务数
+    private int queueCapacity = 20; //等待执行的导出任务数，超过时拒绝新任务
+    private long fileTtl = 3600000; //导出文件保留时间(毫秒)，超过后删除
+    private long cleanupDelay = 600000; //清理过期导出文件的间隔(毫秒)
+    private long streamTimeout = 1800000; //订单CSV流式导出的异步请求超时(毫秒)，其他异步请求使用默认超时
+
+}
@@ -23,4 +23,10 @@ public class JwtProperties {
     private long userTtl;
     private String userTokenName;
 
+    /**
+     * 已校验令牌缓存的最大条数和最长缓存时间(毫秒)，缓存时间不超过令牌本身的过期时间
+     */
+    private int cacheMaxSize = 10000;
+    private long cacheMaxTtl = 600000;
+
 }
@@ -0,0 +1,22 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.menu-cache")
+@Data
+public class MenuCacheProperties {
+
+    private int localMaxSize = 1000; //本地缓存最大条数
+    private long localTtl = 300000; //本地缓存过期时间(毫秒)，正常情况下由redis广播的失效消息提前清除
+    private long redisTtl = 86400000; //redis缓存过期时间(毫秒)
+    private long emptyTtl = 300000; //空结果在redis中的过期时间(毫秒)
+    private long lockTimeout = 10000; //加载数据库时持有redis锁的最长时间(毫秒)
+    private long lockWait = 3000; //等待其他节点加载的最长时间(毫秒)，超时后自行查询数据库
+    private boolean warmUp = true; //启动时预热菜单缓存，完成后才对外提供服务
+    private String snapshotBaseDir = System.getProperty("user.home") + "/.sky-take-out"; //菜单快照文件所在的基础目录
+    private String snapshotFile = "menu-snapshot.bin"; //菜单快照本地文件，相对路径基于snapshotBaseDir解析，为空时不保存
+
+}
@@ -0,0 +1,15 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.order-counter")
+@Data
+public class OrderCounterProperties {
+
+    private String mode = "local"; //计数器存放位置：local 仅当前节点内存；redis 多节点共享redis哈希
+    private long reconcileDelay = 300000; //与数据库对账的间隔(毫秒)
+
+}
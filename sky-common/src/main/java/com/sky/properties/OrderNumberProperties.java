@@ -0,0 +1,15 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.order-number")
+@Data
+public class OrderNumberProperties {
+
+    private long workerId; //当前节点的机器id，集群中每个节点必须不同，取值0~1023
+    private long maxBackwardMs = 5000; //允许容忍的最大时钟回拨毫秒数，超过则拒绝生成订单号
+
+}
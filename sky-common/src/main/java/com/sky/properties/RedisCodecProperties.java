@@ -0,0 +1,16 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.redis-codec")
+@Data
+public class RedisCodecProperties {
+
+    private String format = "json"; //redis缓存值的编码格式：json 带类型信息的json；jdk JDK序列化
+    private boolean compress = true; //是否压缩较大的缓存值
+    private int compressThreshold = 1024; //编码后超过该字节数时使用deflate压缩
+
+}
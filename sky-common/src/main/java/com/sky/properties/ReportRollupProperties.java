@@ -0,0 +1,19 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.report-rollup")
+@Data
+public class ReportRollupProperties {
+
+    private boolean enabled = true; //是否启用每日汇总，关闭时报表直接查询订单表和用户表
+    private String cron = "0 30 2 * * ?"; //每日汇总任务执行时间，需晚于派送中订单的自动完成
+    private int recomputeDays = 2; //每次汇总时重新计算最近的天数，修正前一天下单、当天才完成的订单
+    private int backfillDays = 365; //汇总表为空时首次回填的天数
+    private long reconcileDelay = 300000; //今日实时计数与数据库对账的间隔(毫秒)
+    private long lockTimeout = 1800000; //汇总任务持有redis锁的最长时间(毫秒)，多个节点中同一时间只有一个节点执行汇总
+
+}
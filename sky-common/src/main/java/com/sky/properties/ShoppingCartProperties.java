@@ -0,0 +1,18 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.shopping-cart")
+@Data
+public class ShoppingCartProperties {
+
+    private String storage = "mysql"; //购物车存储方式：mysql 直接读写数据库；redis 存放在redis哈希中，异步回写数据库
+    private long flushDelay = 5000; //redis模式下回写数据库的间隔(毫秒)
+    private int flushBatchSize = 200; //redis模式下每次回写的最大用户数
+    private long emptyTtl = 300000; //redis模式下数据库中购物车为空的标记过期时间(毫秒)，期间不再查询数据库
+    private long flushingTtl = 60000; //redis模式下回写中标记的最长保留时间(毫秒)，回写事务提交后即删除
+
+}
@@ -0,0 +1,15 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.sql-monitor")
+@Data
+public class SqlMonitorProperties {
+
+    private long slowThreshold = 500; //执行时间超过该值(毫秒)的sql记录慢查询日志
+    private int repeatThreshold = 10; //同一请求中同一条语句执行次数超过该值时告警，疑似N+1查询
+
+}
@@ -19,5 +19,6 @@ public class WeChatProperties {
     private String weChatPayCertFilePath; //平台证书
     private String notifyUrl; //支付成功的回调地址
     private String refundNotifyUrl; //退款成功的回调地址
+    private long certCheckDelay = 60000; //检查商户私钥和平台证书文件是否变更的间隔(毫秒)
 
 }
@@ -0,0 +1,45 @@
+package com.sky.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 批量加载工具类
+ * 将"每条主记录查询一次子记录"改为"一次查询全部子记录后按外键分组"，避免N+1查询
+ */
+public class BatchLoadUtil {
+
+    /**
+     * 根据外键集合批量查询子记录，并按外键分组
+     *
+     * @param keys         外键集合，例如订单id、菜品id
+     * @param loader       批量查询方法，例如 orderDetailMapper::getByOrderIds
+     * @param keyExtractor 从子记录中取出外键的方法，例如 OrderDetail::getOrderId
+     * @return 外键 -> 子记录列表，没有子记录的外键不会出现在结果中
+     */
+    public static <K, V> Map<K, List<V>> loadGrouped(Collection<K> keys,
+                                                     Function<List<K>, List<V>> loader,
+                                                     Function<V, K> keyExtractor) {
+        if (keys == null || keys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        // 去重后只查询一次数据库
+        List<K> distinctKeys = new ArrayList<>(new LinkedHashSet<>(keys));
+        List<V> values = loader.apply(distinctKeys);
+
+        Map<K, List<V>> grouped = new HashMap<>();
+        if (values != null) {
+            for (V value : values) {
+                grouped.computeIfAbsent(keyExtractor.apply(value), k -> new ArrayList<>()).add(value);
+            }
+        }
+        return grouped;
+    }
+}
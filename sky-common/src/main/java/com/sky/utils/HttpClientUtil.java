@@ -8,9 +8,12 @@ import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.util.EntityUtils;
 
@@ -19,14 +22,39 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 /**
  * Http工具类
+ * 所有请求共用一个带连接池的HttpClient，复用TCP/TLS连接；
+ * 带Async后缀的方法在独立线程池中执行，不占用调用方线程；线程池和队列都满时返回以RejectedExecutionException失败的future
  */
 public class HttpClientUtil {
 
     static final  int TIMEOUT_MSEC = 5 * 1000;
 
+    //连接池总连接数和每个目标主机的连接数
+    static final int MAX_TOTAL_CONNECTIONS = 200;
+    static final int MAX_PER_ROUTE = 50;
+    //服务端未声明keep-alive时长时，连接最多保持空闲的时间
+    static final long KEEP_ALIVE_MSEC = 30 * 1000;
+    //异步请求排队的最大数量
+    static final int ASYNC_QUEUE_CAPACITY = 1000;
+
+    private static final CloseableHttpClient HTTP_CLIENT = createHttpClient();
+
+    //异步请求线程池，线程数与每个目标主机的连接数相同
+    private static final ExecutorService ASYNC_EXECUTOR = createAsyncExecutor();
+
     /**
      * 发送GET方式请求
      * @param url
@@ -34,8 +62,8 @@ public class HttpClientUtil {
      * @return
      */
     public static String doGet(String url,Map<String,String> paramMap){
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
+        // 使用共享的Httpclient对象
+        CloseableHttpClient httpClient = HTTP_CLIENT;
 
         String result = "";
         CloseableHttpResponse response = null;
@@ -62,9 +90,11 @@ public class HttpClientUtil {
         }catch (Exception e){
             e.printStackTrace();
         }finally {
+            // 只关闭响应，连接归还连接池
             try {
-                response.close();
-                httpClient.close();
+                if (response != null) {
+                    response.close();
+                }
             } catch (IOException e) {
                 e.printStackTrace();
             }
@@ -81,8 +111,8 @@ public class HttpClientUtil {
      * @throws IOException
      */
     public static String doPost(String url, Map<String, String> paramMap) throws IOException {
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
+        // 使用共享的Httpclient对象
+        CloseableHttpClient httpClient = HTTP_CLIENT;
         CloseableHttpResponse response = null;
         String resultString = "";
 
@@ -110,8 +140,11 @@ public class HttpClientUtil {
         } catch (Exception e) {
             throw e;
         } finally {
+            // 只关闭响应，连接归还连接池
             try {
-                response.close();
+                if (response != null) {
+                    response.close();
+                }
             } catch (IOException e) {
                 e.printStackTrace();
             }
@@ -128,8 +161,8 @@ public class HttpClientUtil {
      * @throws IOException
      */
     public static String doPost4Json(String url, Map<String, String> paramMap) throws IOException {
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
+        // 使用共享的Httpclient对象
+        CloseableHttpClient httpClient = HTTP_CLIENT;
         CloseableHttpResponse response = null;
         String resultString = "";
 
@@ -160,8 +193,11 @@ public class HttpClientUtil {
         } catch (Exception e) {
             throw e;
         } finally {
+            // 只关闭响应，连接归还连接池
             try {
-                response.close();
+                if (response != null) {
+                    response.close();
+                }
             } catch (IOException e) {
                 e.printStackTrace();
             }
@@ -169,6 +205,112 @@ public class HttpClientUtil {
 
         return resultString;
     }
+
+    /**
+     * 异步发送GET方式请求
+     * @param url
+     * @param paramMap
+     * @return
+     */
+    public static CompletableFuture<String> doGetAsync(String url, Map<String, String> paramMap) {
+        return supplyAsync(() -> doGet(url, paramMap), ASYNC_EXECUTOR);
+    }
+
+    /**
+     * 异步发送POST方式请求
+     * @param url
+     * @param paramMap
+     * @return
+     */
+    public static CompletableFuture<String> doPostAsync(String url, Map<String, String> paramMap) {
+        return supplyAsync(() -> {
+            try {
+                return doPost(url, paramMap);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, ASYNC_EXECUTOR);
+    }
+
+    /**
+     * 异步发送POST方式请求，请求体为json
+     * @param url
+     * @param paramMap
+     * @return
+     */
+    public static CompletableFuture<String> doPost4JsonAsync(String url, Map<String, String> paramMap) {
+        return supplyAsync(() -> {
+            try {
+                return doPost4Json(url, paramMap);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, ASYNC_EXECUTOR);
+    }
+
+    /**
+     * 在线程池中执行请求，线程池拒绝时返回失败的future，不在调用方线程中执行
+     * @param supplier
+     * @param executor
+     * @return
+     */
+    static CompletableFuture<String> supplyAsync(Supplier<String> supplier, Executor executor) {
+        try {
+            return CompletableFuture.supplyAsync(supplier, executor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    private static CloseableHttpClient createHttpClient() {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(MAX_TOTAL_CONNECTIONS);
+        connectionManager.setDefaultMaxPerRoute(MAX_PER_ROUTE);
+        //空闲超过2秒的连接在复用前先检查是否已被服务端关闭
+        connectionManager.setValidateAfterInactivity(2000);
+
+        //优先使用服务端Keep-Alive响应头中的时长，没有时使用默认值
+        ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+            long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return keepAlive > 0 ? Math.min(keepAlive, KEEP_ALIVE_MSEC) : KEEP_ALIVE_MSEC;
+        };
+
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(builderRequestConfig())
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .evictExpiredConnections()
+                .evictIdleConnections(KEEP_ALIVE_MSEC, TimeUnit.MILLISECONDS)
+                .build();
+
+        //JVM退出时释放连接池
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                httpClient.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }));
+        return httpClient;
+    }
+
+    private static ExecutorService createAsyncExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        //核心线程数与最大线程数相同，保证队列中有任务时线程数已经达到上限；空闲线程超时后回收
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_PER_ROUTE, MAX_PER_ROUTE, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(ASYNC_QUEUE_CAPACITY),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "http-client-async-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     private static RequestConfig builderRequestConfig() {
         return RequestConfig.custom()
                 .setConnectTimeout(TIMEOUT_MSEC)
@@ -0,0 +1,110 @@
+package com.sky.utils;
+
+import com.sky.properties.OrderNumberProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 订单号生成器（雪花算法）
+ * 订单号结构：41位时间戳(毫秒) + 10位机器id + 12位序列号
+ * 同一节点生成的订单号严格递增，不同节点通过机器id区分，保证集群内不重复
+ */
+@Component
+@Slf4j
+public class OrderNumberGenerator {
+
+    //起始时间 2024-01-01 00:00:00 (UTC+8)
+    private static final long EPOCH = 1704038400000L;
+
+    private static final long WORKER_ID_BITS = 10L;
+    private static final long SEQUENCE_BITS = 12L;
+
+    private static final long MAX_WORKER_ID = ~(-1L << WORKER_ID_BITS);
+    private static final long SEQUENCE_MASK = ~(-1L << SEQUENCE_BITS);
+
+    private static final long WORKER_ID_SHIFT = SEQUENCE_BITS;
+    private static final long TIMESTAMP_SHIFT = SEQUENCE_BITS + WORKER_ID_BITS;
+
+    private final long workerId;
+    private final long maxBackwardMs;
+
+    //上一次生成使用的状态：(时间戳 << 12) | 序列号，通过CAS更新，热点路径无锁
+    private final AtomicLong lastState = new AtomicLong(0);
+
+    @Autowired
+    public OrderNumberGenerator(OrderNumberProperties orderNumberProperties) {
+        this(orderNumberProperties.getWorkerId(), orderNumberProperties.getMaxBackwardMs());
+    }
+
+    public OrderNumberGenerator(long workerId, long maxBackwardMs) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("workerId必须在0~" + MAX_WORKER_ID + "之间：" + workerId);
+        }
+        this.workerId = workerId;
+        this.maxBackwardMs = maxBackwardMs;
+        log.info("订单号生成器初始化，workerId：{}", workerId);
+    }
+
+    /**
+     * 生成下一个订单号
+     *
+     * @return
+     */
+    public String nextNumber() {
+        return String.valueOf(nextId());
+    }
+
+    /**
+     * 生成下一个id
+     *
+     * @return
+     */
+    public long nextId() {
+        while (true) {
+            long last = lastState.get();
+            long lastTimestamp = last >>> SEQUENCE_BITS;
+            long now = System.currentTimeMillis() - EPOCH;
+
+            // 时钟回拨超过容忍范围，拒绝生成，避免产生重复订单号
+            // lastTimestamp只会取自系统时钟，这里的差值只来自真实的时钟回拨
+            if (lastTimestamp - now > maxBackwardMs) {
+                throw new IllegalStateException("系统时钟回拨" + (lastTimestamp - now) + "毫秒，拒绝生成订单号");
+            }
+
+            long timestamp;
+            long sequence;
+            if (now > lastTimestamp) {
+                timestamp = now;
+                sequence = 0;
+            } else {
+                // 同一毫秒内或小幅时钟回拨：沿用上次的时间戳继续递增序列号
+                timestamp = lastTimestamp;
+                sequence = (last & SEQUENCE_MASK) + 1;
+                if (sequence > SEQUENCE_MASK) {
+                    // 序列号用尽时等待时钟走过上次的时间戳，不提前借用下一毫秒，否则持续高负载时时间戳会越跑越快
+                    waitUntilAfter(lastTimestamp);
+                    continue;
+                }
+            }
+
+            long next = (timestamp << SEQUENCE_BITS) | sequence;
+            if (lastState.compareAndSet(last, next)) {
+                return (timestamp << TIMESTAMP_SHIFT) | (workerId << WORKER_ID_SHIFT) | sequence;
+            }
+        }
+    }
+
+    /**
+     * 自旋等待，直到系统时钟超过指定的时间戳
+     *
+     * @param timestamp 相对EPOCH的毫秒数
+     */
+    private void waitUntilAfter(long timestamp) {
+        while (System.currentTimeMillis() - EPOCH <= timestamp) {
+            Thread.yield();
+        }
+    }
+}
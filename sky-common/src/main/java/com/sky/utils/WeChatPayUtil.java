@@ -5,21 +5,26 @@ import com.alibaba.fastjson.JSONObject;
 import com.sky.properties.WeChatProperties;
 import com.wechat.pay.contrib.apache.httpclient.WechatPayHttpClientBuilder;
 import com.wechat.pay.contrib.apache.httpclient.util.PemUtil;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.RandomStringUtils;
 import org.apache.http.HttpHeaders;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.util.EntityUtils;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.security.PrivateKey;
 import java.security.Signature;
@@ -28,12 +33,18 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 微信支付工具类
+ * 商户私钥和平台证书只在首次使用时加载一次，HttpClient使用连接池长期复用；
+ * 证书文件发生变化时(reloadIfChanged由定时任务调用)重新加载，旧的HttpClient在其上的请求全部完成后才关闭
  */
 @Component
-public class WeChatPayUtil {
+@Slf4j
+public class WeChatPayUtil implements DisposableBean {
 
     //微信支付下单接口地址
     public static final String JSAPI = "https://api.mch.weixin.qq.com/v3/pay/transactions/jsapi";
@@ -41,37 +52,178 @@ public class WeChatPayUtil {
     //申请退款接口地址
     public static final String REFUNDS = "https://api.mch.weixin.qq.com/v3/refund/domestic/refunds";
 
+    //连接池大小
+    private static final int MAX_TOTAL_CONNECTIONS = 50;
+    private static final int TIMEOUT_MSEC = 5 * 1000;
+
     @Autowired
     private WeChatProperties weChatProperties;
 
+    //商户私钥、平台证书和对应的HttpClient，作为一个整体加载和替换
+    private volatile PayClient payClient;
+
+    //每个线程缓存一个已初始化的签名对象，私钥变化后重新初始化
+    private final ThreadLocal<Signer> signer = new ThreadLocal<>();
+
+    /**
+     * 获取调用微信接口的客户端工具对象，首次调用时加载证书并创建
+     *
+     * @return
+     */
+    private PayClient getClient() throws IOException {
+        PayClient client = payClient;
+        if (client == null) {
+            synchronized (this) {
+                client = payClient;
+                if (client == null) {
+                    client = loadClient();
+                    payClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
     /**
-     * 获取调用微信接口的客户端工具对象
+     * 获取客户端并登记一个进行中的请求，请求结束后必须调用release
+     * 取到的客户端恰好被替换时重新获取，保证不会使用已关闭的客户端
      *
      * @return
      */
-    private CloseableHttpClient getClient() {
-        PrivateKey merchantPrivateKey = null;
-        try {
-            //merchantPrivateKey商户API私钥，如何加载商户API私钥请看常见问题
-            merchantPrivateKey = PemUtil.loadPrivateKey(new FileInputStream(new File(weChatProperties.getPrivateKeyFilePath())));
-            //加载平台证书文件
-            X509Certificate x509Certificate = PemUtil.loadCertificate(new FileInputStream(new File(weChatProperties.getWeChatPayCertFilePath())));
-            //wechatPayCertificates微信支付平台证书列表。你也可以使用后面章节提到的“定时更新平台证书功能”，而不需要关心平台证书的来龙去脉
-            List<X509Certificate> wechatPayCertificates = Arrays.asList(x509Certificate);
-
-            WechatPayHttpClientBuilder builder = WechatPayHttpClientBuilder.create()
-                    .withMerchant(weChatProperties.getMchid(), weChatProperties.getMchSerialNo(), merchantPrivateKey)
-                    .withWechatPay(wechatPayCertificates);
-
-            // 通过WechatPayHttpClientBuilder构造的HttpClient，会自动的处理签名和验签
-            CloseableHttpClient httpClient = builder.build();
-            return httpClient;
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-            return null;
+    private PayClient acquire() throws IOException {
+        while (true) {
+            PayClient client = getClient();
+            client.inFlight.incrementAndGet();
+            if (!client.retired) {
+                return client;
+            }
+            release(client);
+        }
+    }
+
+    /**
+     * 请求结束，客户端已被替换且没有进行中的请求时关闭
+     *
+     * @param client
+     */
+    private void release(PayClient client) {
+        if (client.inFlight.decrementAndGet() == 0 && client.retired) {
+            client.close();
+        }
+    }
+
+    /**
+     * 重新加载商户私钥和平台证书，用于证书轮换
+     * 新请求立即使用新的客户端，旧客户端上进行中的请求完成后再关闭
+     */
+    public void reload() throws IOException {
+        PayClient newClient = loadClient();
+        PayClient oldClient;
+        synchronized (this) {
+            oldClient = payClient;
+            payClient = newClient;
+        }
+        log.info("微信支付证书已重新加载");
+        if (oldClient != null) {
+            oldClient.retired = true;
+            if (oldClient.inFlight.get() == 0) {
+                oldClient.close();
+            }
+        }
+    }
+
+    /**
+     * 商户私钥或平台证书文件修改后重新加载，尚未加载过时不处理
+     */
+    public void reloadIfChanged() throws IOException {
+        PayClient client = payClient;
+        if (client == null || client.lastModified == lastModified()) {
+            return;
+        }
+        log.info("检测到微信支付证书文件变更，重新加载");
+        reload();
+    }
+
+    /**
+     * 应用关闭时释放连接池
+     */
+    @Override
+    public void destroy() throws Exception {
+        PayClient client = payClient;
+        if (client != null) {
+            client.close();
         }
     }
 
+    /**
+     * 加载证书并创建带连接池的HttpClient
+     *
+     * @return
+     */
+    private PayClient loadClient() throws IOException {
+        long lastModified = lastModified();
+        //merchantPrivateKey商户API私钥，如何加载商户API私钥请看常见问题
+        PrivateKey merchantPrivateKey;
+        try (FileInputStream in = new FileInputStream(new File(weChatProperties.getPrivateKeyFilePath()))) {
+            merchantPrivateKey = PemUtil.loadPrivateKey(in);
+        }
+        //加载平台证书文件
+        X509Certificate x509Certificate;
+        try (FileInputStream in = new FileInputStream(new File(weChatProperties.getWeChatPayCertFilePath()))) {
+            x509Certificate = PemUtil.loadCertificate(in);
+        }
+        //wechatPayCertificates微信支付平台证书列表。你也可以使用后面章节提到的“定时更新平台证书功能”，而不需要关心平台证书的来龙去脉
+        List<X509Certificate> wechatPayCertificates = Arrays.asList(x509Certificate);
+
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(MAX_TOTAL_CONNECTIONS);
+        connectionManager.setDefaultMaxPerRoute(MAX_TOTAL_CONNECTIONS);
+
+        WechatPayHttpClientBuilder builder = WechatPayHttpClientBuilder.create()
+                .withMerchant(weChatProperties.getMchid(), weChatProperties.getMchSerialNo(), merchantPrivateKey)
+                .withWechatPay(wechatPayCertificates);
+        builder.setConnectionManager(connectionManager);
+        builder.setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectTimeout(TIMEOUT_MSEC)
+                .setConnectionRequestTimeout(TIMEOUT_MSEC)
+                .setSocketTimeout(TIMEOUT_MSEC)
+                .build());
+        builder.evictIdleConnections(60, TimeUnit.SECONDS);
+
+        // 通过WechatPayHttpClientBuilder构造的HttpClient，会自动的处理签名和验签
+        return new PayClient(merchantPrivateKey, builder.build(), lastModified);
+    }
+
+    /**
+     * 商户私钥和平台证书文件的最后修改时间之和，任意一个文件变化时都会改变
+     *
+     * @return
+     */
+    private long lastModified() {
+        return new File(weChatProperties.getPrivateKeyFilePath()).lastModified()
+                + new File(weChatProperties.getWeChatPayCertFilePath()).lastModified();
+    }
+
+    /**
+     * 使用商户私钥进行SHA256withRSA签名
+     *
+     * @param message
+     * @return
+     */
+    private String sign(byte[] message) throws Exception {
+        PrivateKey privateKey = getClient().privateKey;
+        Signer current = signer.get();
+        if (current == null || current.privateKey != privateKey) {
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initSign(privateKey);
+            current = new Signer(privateKey, signature);
+            signer.set(current);
+        }
+        // sign()完成后签名对象会重置，可直接用于下一次签名
+        current.signature.update(message);
+        return Base64.getEncoder().encodeToString(current.signature.sign());
+    }
+
     /**
      * 发送post方式请求
      *
@@ -80,22 +232,13 @@ public class WeChatPayUtil {
      * @return
      */
     private String post(String url, String body) throws Exception {
-        CloseableHttpClient httpClient = getClient();
-
         HttpPost httpPost = new HttpPost(url);
         httpPost.addHeader(HttpHeaders.ACCEPT, ContentType.APPLICATION_JSON.toString());
         httpPost.addHeader(HttpHeaders.CONTENT_TYPE, ContentType.APPLICATION_JSON.toString());
         httpPost.addHeader("Wechatpay-Serial", weChatProperties.getMchSerialNo());
         httpPost.setEntity(new StringEntity(body, "UTF-8"));
 
-        CloseableHttpResponse response = httpClient.execute(httpPost);
-        try {
-            String bodyAsString = EntityUtils.toString(response.getEntity());
-            return bodyAsString;
-        } finally {
-            httpClient.close();
-            response.close();
-        }
+        return execute(httpPost);
     }
 
     /**
@@ -105,20 +248,26 @@ public class WeChatPayUtil {
      * @return
      */
     private String get(String url) throws Exception {
-        CloseableHttpClient httpClient = getClient();
-
         HttpGet httpGet = new HttpGet(url);
         httpGet.addHeader(HttpHeaders.ACCEPT, ContentType.APPLICATION_JSON.toString());
         httpGet.addHeader(HttpHeaders.CONTENT_TYPE, ContentType.APPLICATION_JSON.toString());
         httpGet.addHeader("Wechatpay-Serial", weChatProperties.getMchSerialNo());
 
-        CloseableHttpResponse response = httpClient.execute(httpGet);
-        try {
-            String bodyAsString = EntityUtils.toString(response.getEntity());
-            return bodyAsString;
+        return execute(httpGet);
+    }
+
+    /**
+     * 使用当前客户端执行请求，只关闭响应，连接归还连接池继续复用
+     *
+     * @param request
+     * @return
+     */
+    private String execute(HttpUriRequest request) throws Exception {
+        PayClient client = acquire();
+        try (CloseableHttpResponse response = client.httpClient.execute(request)) {
+            return EntityUtils.toString(response.getEntity());
         } finally {
-            httpClient.close();
-            response.close();
+            release(client);
         }
     }
 
@@ -187,10 +336,8 @@ public class WeChatPayUtil {
             String signMessage = stringBuilder.toString();
             byte[] message = signMessage.getBytes();
 
-            Signature signature = Signature.getInstance("SHA256withRSA");
-            signature.initSign(PemUtil.loadPrivateKey(new FileInputStream(new File(weChatProperties.getPrivateKeyFilePath()))));
-            signature.update(message);
-            String packageSign = Base64.getEncoder().encodeToString(signature.sign());
+            //使用已加载的商户私钥签名，不再重复读取私钥文件
+            String packageSign = sign(message);
 
             //构造数据给微信小程序，用于调起微信支付
             JSONObject jo = new JSONObject();
@@ -232,4 +379,49 @@ public class WeChatPayUtil {
         //调用申请退款接口
         return post(REFUNDS, body);
     }
+
+    /**
+     * 商户私钥和使用该私钥签名验签的HttpClient
+     */
+    private static class PayClient {
+        private final PrivateKey privateKey;
+        private final CloseableHttpClient httpClient;
+        //加载时证书文件的修改时间
+        private final long lastModified;
+        //正在使用该客户端的请求数
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        //已被新的客户端替换
+        private volatile boolean retired;
+
+        PayClient(PrivateKey privateKey, CloseableHttpClient httpClient, long lastModified) {
+            this.privateKey = privateKey;
+            this.httpClient = httpClient;
+            this.lastModified = lastModified;
+        }
+
+        void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                httpClient.close();
+            } catch (IOException e) {
+                log.warn("关闭微信支付HttpClient失败", e);
+            }
+        }
+    }
+
+    /**
+     * 线程私有的签名对象及其对应的私钥
+     */
+    private static class Signer {
+        private final PrivateKey privateKey;
+        private final Signature signature;
+
+        Signer(PrivateKey privateKey, Signature signature) {
+            this.privateKey = privateKey;
+            this.signature = signature;
+        }
+    }
 }
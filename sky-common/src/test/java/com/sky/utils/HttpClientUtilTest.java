@@ -0,0 +1,99 @@
+package com.sky.utils;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpClientUtilTest {
+
+    private HttpServer server;
+    private String baseUrl;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/echo", exchange -> {
+            // 返回请求方法和查询参数
+            String body = exchange.getRequestMethod() + " " + exchange.getRequestURI().getQuery();
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/echo";
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void doGetAsyncReturnsResponseBody() throws Exception {
+        String result = HttpClientUtil.doGetAsync(baseUrl, Collections.singletonMap("code", "abc"))
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals("GET code=abc", result);
+    }
+
+    @Test
+    void doPostAsyncReturnsResponseBody() throws Exception {
+        String result = HttpClientUtil.doPostAsync(baseUrl, Collections.singletonMap("code", "abc"))
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals("POST null", result);
+    }
+
+    @Test
+    void rejectedRequestFailsFutureInsteadOfRunningOnCaller() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), new ThreadPoolExecutor.AbortPolicy());
+        try {
+            // 占满唯一的线程
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            AtomicBoolean ran = new AtomicBoolean();
+            CompletableFuture<String> future = HttpClientUtil.supplyAsync(() -> {
+                ran.set(true);
+                return "ok";
+            }, executor);
+
+            assertTrue(future.isCompletedExceptionally());
+            ExecutionException e = assertThrows(ExecutionException.class, future::get);
+            assertInstanceOf(RejectedExecutionException.class, e.getCause());
+            assertFalse(ran.get());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+}
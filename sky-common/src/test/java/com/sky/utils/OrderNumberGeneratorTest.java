@@ -0,0 +1,128 @@
+package com.sky.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderNumberGeneratorTest {
+
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 500_000;
+
+    @Test
+    void concurrentIdsAreUniqueAndMonotonicPerThread() throws Exception {
+        OrderNumberGenerator generator = new OrderNumberGenerator(1, 5000);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    long[] ids = new long[IDS_PER_THREAD];
+                    start.await();
+                    for (int j = 0; j < IDS_PER_THREAD; j++) {
+                        ids[j] = generator.nextId();
+                    }
+                    return ids;
+                }));
+            }
+            start.countDown();
+
+            long[] all = new long[THREADS * IDS_PER_THREAD];
+            int offset = 0;
+            for (Future<long[]> future : futures) {
+                long[] ids = future.get();
+                // 单个线程内先后取到的id严格递增
+                for (int j = 1; j < ids.length; j++) {
+                    assertTrue(ids[j] > ids[j - 1], "线程内id未递增：" + ids[j - 1] + " -> " + ids[j]);
+                }
+                System.arraycopy(ids, 0, all, offset, ids.length);
+                offset += ids.length;
+            }
+
+            Arrays.sort(all);
+            for (int i = 1; i < all.length; i++) {
+                assertTrue(all[i] != all[i - 1], "生成了重复id：" + all[i]);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 生成的id数远超 4096 × maxBackwardMs 时，序列号多次用尽也只会等待时钟，不会误判为时钟回拨
+     */
+    @Test
+    void sustainedLoadWaitsForClockInsteadOfRunningAhead() throws Exception {
+        long maxBackwardMs = 10;
+        int idsPerThread = 250_000;
+        OrderNumberGenerator generator = new OrderNumberGenerator(1, maxBackwardMs);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> {
+                    long[] ids = new long[idsPerThread];
+                    for (int j = 0; j < idsPerThread; j++) {
+                        ids[j] = generator.nextId();
+                    }
+                    return ids;
+                }));
+            }
+
+            long[] all = new long[4 * idsPerThread];
+            assertTrue(all.length > 4096 * maxBackwardMs * 20);
+            int offset = 0;
+            for (Future<long[]> future : futures) {
+                long[] ids = future.get();
+                System.arraycopy(ids, 0, all, offset, ids.length);
+                offset += ids.length;
+            }
+
+            Arrays.sort(all);
+            for (int i = 1; i < all.length; i++) {
+                assertTrue(all[i] != all[i - 1], "生成了重复id：" + all[i]);
+            }
+            // 时间戳不超过当前时钟
+            long maxTimestamp = (all[all.length - 1] >>> 22) + 1704038400000L;
+            assertTrue(maxTimestamp <= System.currentTimeMillis());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void workerIdIsEncodedInId() {
+        OrderNumberGenerator generator1 = new OrderNumberGenerator(1, 5000);
+        OrderNumberGenerator generator2 = new OrderNumberGenerator(2, 5000);
+
+        // 不同节点即使在同一毫秒、同一序列号下生成，机器id位也不同
+        assertEquals(1, (generator1.nextId() >>> 12) & 1023);
+        assertEquals(2, (generator2.nextId() >>> 12) & 1023);
+    }
+
+    @Test
+    void numberIsDecimalId() {
+        OrderNumberGenerator generator = new OrderNumberGenerator(0, 5000);
+
+        String number = generator.nextNumber();
+
+        assertTrue(Long.parseLong(number) > 0);
+    }
+
+    @Test
+    void rejectsInvalidWorkerId() {
+        assertThrows(IllegalArgumentException.class, () -> new OrderNumberGenerator(-1, 5000));
+        assertThrows(IllegalArgumentException.class, () -> new OrderNumberGenerator(1024, 5000));
+    }
+}
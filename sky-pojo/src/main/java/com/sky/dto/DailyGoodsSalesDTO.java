@@ -0,0 +1,24 @@
+package com.sky.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class DailyGoodsSalesDTO implements Serializable {
+    //统计日期
+    private LocalDate statDate;
+
+    //商品名称
+    private String name;
+
+    //销量
+    private Integer number;
+}
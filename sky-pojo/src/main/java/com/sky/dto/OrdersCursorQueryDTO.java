@@ -0,0 +1,27 @@
+package com.sky.dto;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Data
+public class OrdersCursorQueryDTO implements Serializable {
+
+    //每次加载的订单数量，不传时为10，最大50
+    private int pageSize;
+
+    //订单状态 1待付款 2待接单 3已接单 4派送中 5已完成 6已取消
+    private Integer status;
+
+    //上一次加载的最后一条订单的下单时间，首次加载时为空
+    @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime lastOrderTime;
+
+    //上一次加载的最后一条订单的id，首次加载时为空
+    private Long lastId;
+
+    private Long userId;
+
+}
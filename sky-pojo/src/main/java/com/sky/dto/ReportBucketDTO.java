@@ -0,0 +1,32 @@
+package com.sky.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ReportBucketDTO implements Serializable {
+    //时间段的开始时间，格式为 yyyy-MM-dd HH:mm:ss
+    private String bucket;
+
+    //营业额（已完成订单金额）
+    private Double turnover;
+
+    //订单数
+    private Integer orderCount;
+
+    //有效订单数（已完成订单）
+    private Integer validOrderCount;
+
+    //新增用户数
+    private Integer newUserCount;
+
+    //截至时间段结束的用户总数
+    private Integer totalUserCount;
+}
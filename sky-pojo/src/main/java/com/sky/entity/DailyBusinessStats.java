@@ -0,0 +1,44 @@
+package com.sky.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 每日营业数据汇总
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyBusinessStats implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    //统计日期
+    private LocalDate statDate;
+
+    //营业额（当天下单且已完成的订单金额）
+    private BigDecimal turnover;
+
+    //订单总数
+    private Integer totalOrderCount;
+
+    //有效订单数
+    private Integer validOrderCount;
+
+    //新增用户数
+    private Integer newUserCount;
+
+    //截至当天结束的用户总数
+    private Integer totalUserCount;
+
+    //汇总时间
+    private LocalDateTime updateTime;
+}
@@ -0,0 +1,37 @@
+package com.sky.enumeration;
+
+/**
+ * 异步导出任务状态
+ */
+public enum ExportJobStatus {
+
+    /**
+     * 等待执行
+     */
+    PENDING,
+
+    /**
+     * 执行中
+     */
+    RUNNING,
+
+    /**
+     * 已完成
+     */
+    DONE,
+
+    /**
+     * 失败
+     */
+    FAILED;
+
+    /**
+     * 是否已结束（完成或失败）
+     *
+     * @return
+     */
+    public boolean isFinished() {
+        return this == DONE || this == FAILED;
+    }
+
+}
@@ -13,6 +13,9 @@ import java.io.Serializable;
 @AllArgsConstructor
 public class DishItemVO implements Serializable {
 
+    //菜品id
+    private Long dishId;
+
     //菜品名称
     private String name;
 
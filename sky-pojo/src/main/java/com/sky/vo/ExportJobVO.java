@@ -0,0 +1,39 @@
+package com.sky.vo;
+
+import com.sky.enumeration.ExportJobStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExportJobVO implements Serializable {
+
+    //任务id
+    private String id;
+
+    //任务状态：PENDING 等待执行，RUNNING 执行中，DONE 已完成，FAILED 失败
+    private ExportJobStatus status;
+
+    //进度，0~100
+    private Integer progress;
+
+    //下载文件名
+    private String fileName;
+
+    //失败原因
+    private String message;
+
+    //创建时间
+    private LocalDateTime createTime;
+
+    //完成时间
+    private LocalDateTime finishTime;
+
+}
@@ -0,0 +1,22 @@
+package com.sky.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 完整菜单：启用的分类，以及每个分类下起售的菜品(含口味)和套餐(含菜品)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MenuSnapshotVO implements Serializable {
+
+    //分类列表，按排序字段排列
+    private List<MenuCategoryVO> categories;
+}
@@ -0,0 +1,31 @@
+package com.sky.vo;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderCursorPageVO implements Serializable {
+
+    //当前批次的订单
+    private List<OrderVO> records;
+
+    //是否还有更多订单
+    private Boolean hasMore;
+
+    //下一次加载时传入的lastOrderTime，精确到秒
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime nextOrderTime;
+
+    //下一次加载时传入的lastId
+    private Long nextId;
+}
@@ -12,6 +12,9 @@ import org.aspectj.lang.annotation.Pointcut;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.stereotype.Component;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.time.LocalDateTime;
 
@@ -31,12 +34,20 @@ public class AutoFillAspect {
     }
 
 
+    //每个实体类的公共字段setter只查找一次，之后直接通过MethodHandle调用
+    private static final ClassValue<Setters> SETTERS = new ClassValue<Setters>() {
+        @Override
+        protected Setters computeValue(Class<?> type) {
+            return new Setters(type);
+        }
+    };
+
     /**
      * 前置通知，在通知中进行公共字段的赋值
      */
     @Before("autoFillPointCut()")
     public void autoFill(JoinPoint joinPoint) {
-        log.info("开始进行公共字段自动填充");
+        log.debug("开始进行公共字段自动填充");
 
         //获取到当前被拦截的方法上的数据库操作类型
         MethodSignature signature = (MethodSignature) joinPoint.getSignature();//方法签名对象
@@ -45,44 +56,74 @@ public class AutoFillAspect {
 
         //获取到当前被拦截的方法的参数--实体
         Object[] args = joinPoint.getArgs();
-        if (args == null || args.length == 0) {
+        if (args == null || args.length == 0 || args[0] == null) {
             return;
         }
 
-        Object entity = args[0];
+        fill(args[0], operationType);
+    }
+
+    /**
+     * 根据操作类型为实体的公共字段赋值
+     *
+     * @param entity
+     * @param operationType
+     */
+    static void fill(Object entity, OperationType operationType) {
+        Setters setters = SETTERS.get(entity.getClass());
 
         //准备赋值的数据
         LocalDateTime now = LocalDateTime.now();
         Long currentId = BaseContext.getCurrentId();
 
-        //根据当前不同的操作类型，为对应的属性通过反射来赋值
-        if (operationType == OperationType.INSERT) {
-            //为4个公共字段赋值
-            try {
-                Method setCreateTime = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_CREATE_TIME, LocalDateTime.class);
-                Method setCreateUser = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_CREATE_USER, Long.class);
-                Method setUpdateTime = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_TIME, LocalDateTime.class);
-                Method setUpdateUser = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_USER, Long.class);
-
-                //通过反射为对象属性赋值
-                setCreateTime.invoke(entity, now);
-                setCreateUser.invoke(entity, currentId);
-                setUpdateTime.invoke(entity, now);
-                setUpdateUser.invoke(entity, currentId);
-            } catch (Exception e) {
-                e.printStackTrace();
+        //根据当前不同的操作类型，为对应的属性赋值
+        try {
+            if (operationType == OperationType.INSERT) {
+                //为4个公共字段赋值
+                Setters.set(setters.createTime, entity, now);
+                Setters.set(setters.createUser, entity, currentId);
+                Setters.set(setters.updateTime, entity, now);
+                Setters.set(setters.updateUser, entity, currentId);
+            } else if (operationType == OperationType.UPDATE) {
+                //为2个公共字段赋值
+                Setters.set(setters.updateTime, entity, now);
+                Setters.set(setters.updateUser, entity, currentId);
+            }
+        } catch (Throwable e) {
+            log.error("公共字段自动填充失败：{}", entity.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * 实体类的公共字段setter，类型统一适配为(Object, Object)void；实体类没有对应setter时为null
+     */
+    private static class Setters {
+        private final MethodHandle createTime;
+        private final MethodHandle createUser;
+        private final MethodHandle updateTime;
+        private final MethodHandle updateUser;
+
+        Setters(Class<?> type) {
+            createTime = find(type, AutoFillConstant.SET_CREATE_TIME, LocalDateTime.class);
+            createUser = find(type, AutoFillConstant.SET_CREATE_USER, Long.class);
+            updateTime = find(type, AutoFillConstant.SET_UPDATE_TIME, LocalDateTime.class);
+            updateUser = find(type, AutoFillConstant.SET_UPDATE_USER, Long.class);
+        }
+
+        static void set(MethodHandle setter, Object entity, Object value) throws Throwable {
+            if (setter != null) {
+                setter.invokeExact(entity, value);
             }
-        } else if (operationType == OperationType.UPDATE) {
-            //为2个公共字段赋值
+        }
+
+        private static MethodHandle find(Class<?> type, String name, Class<?> parameterType) {
             try {
-                Method setUpdateTime = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_TIME, LocalDateTime.class);
-                Method setUpdateUser = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_USER, Long.class);
-
-                //通过反射为对象属性赋值
-                setUpdateTime.invoke(entity,now);
-                setUpdateUser.invoke(entity,currentId);
-            } catch (Exception e) {
-                e.printStackTrace();
+                Method method = type.getDeclaredMethod(name, parameterType);
+                return MethodHandles.publicLookup().unreflect(method)
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class));
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                log.warn("实体类{}没有可用的方法{}，跳过该字段的自动填充", type.getName(), name);
+                return null;
             }
         }
     }
@@ -0,0 +1,89 @@
+package com.sky.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 进程内缓存，限制条数并按写入时间过期
+ * 条目存放在按访问顺序排列的LinkedHashMap中，条数超过上限时淘汰最久未访问的条目，读写都是O(1)；
+ * LinkedHashMap在访问时也会调整顺序，所有操作在同一把锁内执行
+ *
+ * @param <V>
+ */
+public class LocalCache<V> {
+
+    private final long ttlMillis;
+    private final Map<String, Entry<V>> map;
+
+    public LocalCache(int maxSize, long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.map = new LinkedHashMap<String, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * 获取缓存值，不存在或已过期时返回null
+     *
+     * @param key
+     * @return
+     */
+    public V get(String key) {
+        synchronized (map) {
+            Entry<V> entry = map.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expireAt <= System.currentTimeMillis()) {
+                map.remove(key);
+                return null;
+            }
+            return entry.value;
+        }
+    }
+
+    public void put(String key, V value) {
+        Entry<V> entry = new Entry<>(value, System.currentTimeMillis() + ttlMillis);
+        synchronized (map) {
+            map.put(key, entry);
+        }
+    }
+
+    public void remove(String key) {
+        synchronized (map) {
+            map.remove(key);
+        }
+    }
+
+    public void removeIf(Predicate<String> keyPredicate) {
+        synchronized (map) {
+            map.keySet().removeIf(keyPredicate);
+        }
+    }
+
+    public void clear() {
+        synchronized (map) {
+            map.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (map) {
+            return map.size();
+        }
+    }
+
+    private static class Entry<V> {
+        private final V value;
+        private final long expireAt;
+
+        Entry(V value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+}
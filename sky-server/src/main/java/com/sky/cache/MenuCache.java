@@ -0,0 +1,307 @@
+package com.sky.cache;
+
+import com.sky.metrics.CacheMetrics;
+import com.sky.properties.MenuCacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 菜单两级缓存：一级为进程内LocalCache，二级为redis
+ * 查询顺序为 本地缓存 -> redis -> 数据库，下级命中后回填上级；
+ * redis中的数据按版本号存放，key为 family_id:v类别版本.id版本，版本号分别记录在
+ * menu_version:family 和 menu_version:family:id 中。管理端修改数据后只需递增受影响的版本号，
+ * 旧版本的数据不再被读取，由过期时间自动清除，不需要扫描keyspace；
+ * 同时通过redis发布失效消息，所有节点收到后清除本地缓存，并发布MenuInvalidatedEvent
+ */
+@Component
+@Slf4j
+public class MenuCache implements MessageListener {
+
+    public static final String FAMILY_DISH = "dish";
+    public static final String FAMILY_SETMEAL = "setmeal";
+    public static final String FAMILY_CATEGORY = "category";
+    public static final String FAMILY_SETMEAL_ITEMS = "setmealItems";
+
+    //缓存失效消息频道，消息内容为 family:id，清除整类缓存时id为*
+    private static final String INVALIDATE_CHANNEL = "menu_cache_invalidate";
+    private static final String ALL = "*";
+    private static final String VERSION_KEY_PREFIX = "menu_version:";
+    private static final String LOCK_KEY_PREFIX = "menu_lock:";
+    private static final long LOCK_POLL_MILLIS = 50;
+
+    // 只有锁仍属于自己时才删除，避免删除超时后被其他节点获取的锁
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0",
+            Long.class);
+
+    @Autowired
+    private RedisTemplate redisTemplate;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+    @Autowired
+    private MenuCacheProperties menuCacheProperties;
+    @Autowired
+    private CacheMetrics cacheMetrics;
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    private LocalCache<List<?>> localCache;
+
+    //正在加载的key，同一个key的并发请求共用一次加载
+    private final Map<String, CompletableFuture<List<?>>> inFlight = new ConcurrentHashMap<>();
+
+    //每次清除本地缓存时加1，查询期间发生过清除的结果不回填本地缓存，避免写回旧数据
+    private final AtomicLong invalidateCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        localCache = new LocalCache<>(menuCacheProperties.getLocalMaxSize(), menuCacheProperties.getLocalTtl());
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * 查询缓存的列表，两级缓存都未命中时调用loader查询数据库并写入缓存
+     * 同一节点上同一个key同时只有一个线程查询redis和数据库，其他线程等待同一个结果；
+     * 多个节点之间通过redis锁保证只有一个节点查询数据库，其他节点等待它写入redis
+     *
+     * @param family 缓存类别
+     * @param id     类别下的id，例如分类id
+     * @param loader
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> getList(String family, Object id, Supplier<List<T>> loader) {
+        String key = keyOf(family, id);
+
+        // 1.本地缓存
+        List<T> list = (List<T>) localCache.get(key);
+        if (list != null) {
+            cacheMetrics.hit(family, CacheMetrics.LEVEL_LOCAL);
+            return list;
+        }
+
+        // 2.已有线程在加载同一个key时等待它的结果
+        CompletableFuture<List<?>> future = new CompletableFuture<>();
+        CompletableFuture<List<?>> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            cacheMetrics.hit(family, CacheMetrics.LEVEL_IN_FLIGHT);
+            return (List<T>) await(existing);
+        }
+
+        try {
+            long count = invalidateCount.get();
+            list = loadFromRedisOrDb(family, id, loader);
+            if (invalidateCount.get() == count) {
+                localCache.put(key, list);
+            }
+            future.complete(list);
+            return list;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * 清除指定id的缓存
+     *
+     * @param family
+     * @param ids
+     */
+    public void evict(String family, Object... ids) {
+        evict(family, Arrays.asList(ids));
+    }
+
+    /**
+     * 清除指定id的缓存，递增这些id的版本号
+     *
+     * @param family
+     * @param ids
+     */
+    public void evict(String family, Collection<?> ids) {
+        for (Object id : new LinkedHashSet<>(ids)) {
+            if (id == null) {
+                continue;
+            }
+            stringRedisTemplate.opsForValue().increment(VERSION_KEY_PREFIX + family + ":" + id);
+            publish(family + ":" + id);
+        }
+    }
+
+    /**
+     * 清除整类缓存，递增类别的版本号
+     *
+     * @param family
+     */
+    public void evictAll(String family) {
+        stringRedisTemplate.opsForValue().increment(VERSION_KEY_PREFIX + family);
+        publish(family + ":" + ALL);
+    }
+
+    /**
+     * 收到失效消息，清除本地缓存
+     *
+     * @param message
+     * @param pattern
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        invalidateLocal(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private void publish(String target) {
+        // 先清除本节点，再通知其他节点
+        invalidateLocal(target);
+        stringRedisTemplate.convertAndSend(INVALIDATE_CHANNEL, target);
+    }
+
+    private void invalidateLocal(String target) {
+        int index = target.indexOf(':');
+        if (index < 0) {
+            return;
+        }
+        String family = target.substring(0, index);
+        String id = target.substring(index + 1);
+        invalidateCount.incrementAndGet();
+        if (ALL.equals(id)) {
+            String prefix = family + "_";
+            localCache.removeIf(key -> key.startsWith(prefix));
+        } else {
+            localCache.remove(keyOf(family, id));
+        }
+        log.debug("清除本地菜单缓存：{}", target);
+        applicationEventPublisher.publishEvent(new MenuInvalidatedEvent(family, id));
+    }
+
+    /**
+     * 查询redis，不存在时获取分布式锁后查询数据库；没有获取到锁时等待持有锁的节点写入redis
+     *
+     * @param family
+     * @param id
+     * @param loader
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    private <T> List<T> loadFromRedisOrDb(String family, Object id, Supplier<List<T>> loader) {
+        // 先取出当前版本号，再读取对应版本的数据
+        String redisKey = versionedKey(family, id);
+        List<T> list = (List<T>) redisTemplate.opsForValue().get(redisKey);
+        if (list != null) {
+            cacheMetrics.hit(family, CacheMetrics.LEVEL_REDIS);
+            return list;
+        }
+
+        String lockKey = LOCK_KEY_PREFIX + redisKey;
+        String token = UUID.randomUUID().toString();
+        Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(lockKey, token,
+                menuCacheProperties.getLockTimeout(), TimeUnit.MILLISECONDS);
+        if (!Boolean.TRUE.equals(locked)) {
+            // 其他节点正在加载，轮询等待其写入redis，超时后自行查询数据库
+            long deadline = System.currentTimeMillis() + menuCacheProperties.getLockWait();
+            while (System.currentTimeMillis() < deadline) {
+                sleep(LOCK_POLL_MILLIS);
+                list = (List<T>) redisTemplate.opsForValue().get(redisKey);
+                if (list != null) {
+                    cacheMetrics.hit(family, CacheMetrics.LEVEL_REDIS);
+                    return list;
+                }
+            }
+            log.warn("等待菜单缓存加载超时，直接查询数据库：{}", redisKey);
+        }
+
+        try {
+            if (Boolean.TRUE.equals(locked)) {
+                // 获取锁期间其他节点可能已经写入
+                list = (List<T>) redisTemplate.opsForValue().get(redisKey);
+                if (list != null) {
+                    cacheMetrics.hit(family, CacheMetrics.LEVEL_REDIS);
+                    return list;
+                }
+            }
+
+            // 查询数据库，空结果同样缓存(过期时间较短)，避免没有数据的分类每次都查询数据库
+            cacheMetrics.miss(family);
+            list = loader.get();
+            if (list == null || list.isEmpty()) {
+                list = new ArrayList<>();
+                redisTemplate.opsForValue().set(redisKey, list, menuCacheProperties.getEmptyTtl(), TimeUnit.MILLISECONDS);
+            } else {
+                redisTemplate.opsForValue().set(redisKey, list, menuCacheProperties.getRedisTtl(), TimeUnit.MILLISECONDS);
+            }
+            return list;
+        } finally {
+            if (Boolean.TRUE.equals(locked)) {
+                stringRedisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(lockKey), token);
+            }
+        }
+    }
+
+    private List<?> await(CompletableFuture<List<?>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String keyOf(String family, Object id) {
+        return family + "_" + id;
+    }
+
+    /**
+     * 根据类别和id的当前版本号生成redis中的key
+     *
+     * @param family
+     * @param id
+     * @return
+     */
+    private String versionedKey(String family, Object id) {
+        List<String> versions = stringRedisTemplate.opsForValue().multiGet(
+                Arrays.asList(VERSION_KEY_PREFIX + family, VERSION_KEY_PREFIX + family + ":" + id));
+        String familyVersion = versions == null || versions.get(0) == null ? "0" : versions.get(0);
+        String idVersion = versions == null || versions.get(1) == null ? "0" : versions.get(1);
+        return keyOf(family, id) + ":v" + familyVersion + "." + idVersion;
+    }
+}
@@ -0,0 +1,18 @@
+package com.sky.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 菜单缓存失效事件，本节点或其他节点修改菜品、套餐、分类后发布
+ */
+@Data
+@AllArgsConstructor
+public class MenuInvalidatedEvent {
+
+    //缓存类别
+    private String family;
+
+    //类别下的id，整类失效时为*
+    private String id;
+}
@@ -0,0 +1,30 @@
+package com.sky.cache;
+
+import lombok.Getter;
+
+/**
+ * 序列化好的完整菜单，json为接口响应的原始字节，gzip为压缩后的字节
+ * 两种编码的响应体不同，各自使用一个强ETag
+ */
+@Getter
+public class MenuSnapshot {
+
+    private static final String GZIP_SUFFIX = "-gzip";
+
+    private final byte[] json;
+
+    private final byte[] gzip;
+
+    //json响应的强ETag，由json内容的SHA-256摘要生成，内容不变时重建后保持不变
+    private final String etag;
+
+    //gzip响应的强ETag，在etag的引号内加上-gzip后缀
+    private final String gzipEtag;
+
+    public MenuSnapshot(byte[] json, byte[] gzip, String etag) {
+        this.json = json;
+        this.gzip = gzip;
+        this.etag = etag;
+        this.gzipEtag = etag.substring(0, etag.length() - 1) + GZIP_SUFFIX + "\"";
+    }
+}
@@ -0,0 +1,102 @@
+package com.sky.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 菜单快照本地文件，通过内存映射读写
+ * 文件格式：魔数(int) + etag长度(int) + etag + json长度(int) + json + gzip长度(int) + gzip
+ * 写入时先写临时文件再原子替换，读取时不会读到写了一半的文件
+ */
+@Slf4j
+public class MenuSnapshotFile {
+
+    private static final int MAGIC = 0x534B4D31;
+
+    private final Path path;
+
+    public MenuSnapshotFile(String path) {
+        this.path = Paths.get(path);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * 读取快照，文件不存在或格式错误时返回null
+     *
+     * @return
+     */
+    public MenuSnapshot read() {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r");
+             FileChannel channel = file.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 4 || buffer.getInt() != MAGIC) {
+                log.warn("菜单快照文件格式错误：{}", path);
+                return null;
+            }
+            String etag = new String(readBlock(buffer), StandardCharsets.UTF_8);
+            byte[] json = readBlock(buffer);
+            byte[] gzip = readBlock(buffer);
+            return new MenuSnapshot(json, gzip, etag);
+        } catch (IOException | RuntimeException e) {
+            log.warn("读取菜单快照文件失败：{}", path, e);
+            return null;
+        }
+    }
+
+    /**
+     * 写入快照
+     *
+     * @param snapshot
+     */
+    public void write(MenuSnapshot snapshot) throws IOException {
+        byte[] etag = snapshot.getEtag().getBytes(StandardCharsets.UTF_8);
+        long size = 4L * 4 + etag.length + snapshot.getJson().length + snapshot.getGzip().length;
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = Paths.get(path + ".tmp");
+        Files.deleteIfExists(tmp);
+        try (RandomAccessFile file = new RandomAccessFile(tmp.toFile(), "rw");
+             FileChannel channel = file.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC);
+            writeBlock(buffer, etag);
+            writeBlock(buffer, snapshot.getJson());
+            writeBlock(buffer, snapshot.getGzip());
+            buffer.force();
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private byte[] readBlock(MappedByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalStateException("菜单快照文件已损坏");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private void writeBlock(MappedByteBuffer buffer, byte[] bytes) {
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+}
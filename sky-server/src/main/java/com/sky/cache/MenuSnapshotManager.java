@@ -0,0 +1,266 @@
+package com.sky.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sky.constant.StatusConstant;
+import com.sky.entity.Category;
+import com.sky.entity.Dish;
+import com.sky.entity.Setmeal;
+import com.sky.json.JacksonObjectMapper;
+import com.sky.properties.MenuCacheProperties;
+import com.sky.result.Result;
+import com.sky.service.CategoryService;
+import com.sky.service.DishService;
+import com.sky.service.SetmealService;
+import com.sky.vo.DishItemVO;
+import com.sky.vo.DishVO;
+import com.sky.vo.MenuCategoryVO;
+import com.sky.vo.MenuSetmealVO;
+import com.sky.vo.MenuSnapshotVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 完整菜单快照
+ * 将分类、菜品、套餐一次性组装并序列化为json和gzip字节保存在内存中，菜单接口直接输出字节；
+ * 收到MenuInvalidatedEvent后在后台线程重建，短时间内的多次修改合并为一次重建；
+ * 每次重建后写入本地快照文件，重启时可以先从文件加载，再在后台根据数据库重建
+ */
+@Component
+@Slf4j
+public class MenuSnapshotManager {
+
+    //收到失效事件后延迟重建，合并批量修改产生的多个事件
+    private static final long REBUILD_DELAY_MILLIS = 200;
+
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private DishService dishService;
+    @Autowired
+    private SetmealService setmealService;
+    @Autowired
+    private MenuCacheProperties menuCacheProperties;
+
+    //与接口消息转换器使用相同的序列化规则
+    private final ObjectMapper objectMapper = new JacksonObjectMapper();
+
+    private volatile MenuSnapshot snapshot;
+
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "menu-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 获取当前菜单快照，尚未构建时同步构建
+     *
+     * @return
+     */
+    public MenuSnapshot getSnapshot() {
+        MenuSnapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    current = rebuild();
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 从本地快照文件加载，用于重启后在数据库重建完成前提供菜单
+     *
+     * @return 是否加载成功
+     */
+    public boolean loadFromFile() {
+        MenuSnapshotFile file = snapshotFile();
+        if (file == null) {
+            return false;
+        }
+        MenuSnapshot fileSnapshot = file.read();
+        if (fileSnapshot == null) {
+            return false;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = fileSnapshot;
+            }
+        }
+        log.info("从本地文件加载菜单快照：{}，大小：{}字节", file.getPath(), fileSnapshot.getJson().length);
+        return true;
+    }
+
+    /**
+     * 菜单数据发生变化
+     *
+     * @param event
+     */
+    @EventListener
+    public void onMenuInvalidated(MenuInvalidatedEvent event) {
+        scheduleRebuild();
+    }
+
+    /**
+     * 在后台线程中重建快照，已有待执行的重建时不重复提交
+     */
+    public void scheduleRebuild() {
+        if (!rebuildScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        executor.schedule(() -> {
+            rebuildScheduled.set(false);
+            try {
+                rebuild();
+            } catch (Exception e) {
+                log.error("重建菜单快照失败", e);
+            }
+        }, REBUILD_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 查询数据库重建快照
+     *
+     * @return
+     */
+    public synchronized MenuSnapshot rebuild() {
+        long start = System.currentTimeMillis();
+        MenuSnapshotVO menu = buildMenu();
+
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(Result.success(menu));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("序列化菜单快照失败", e);
+        }
+        MenuSnapshot newSnapshot = new MenuSnapshot(json, gzip(json), etagOf(json));
+        snapshot = newSnapshot;
+        saveToFile(newSnapshot);
+
+        log.info("菜单快照重建完成，分类数：{}，大小：{}字节，压缩后：{}字节，耗时：{}ms",
+                menu.getCategories().size(), json.length, newSnapshot.getGzip().length,
+                System.currentTimeMillis() - start);
+        return newSnapshot;
+    }
+
+    /**
+     * 组装完整菜单，菜品、套餐、套餐包含的菜品各批量查询后按分类分组
+     *
+     * @return
+     */
+    private MenuSnapshotVO buildMenu() {
+        List<Category> categories = categoryService.list(null);
+
+        Dish dishQuery = new Dish();
+        dishQuery.setStatus(StatusConstant.ENABLE);
+        Map<Long, List<DishVO>> dishMap = dishService.listWithFlavor(dishQuery).stream()
+                .collect(Collectors.groupingBy(DishVO::getCategoryId));
+
+        Setmeal setmealQuery = new Setmeal();
+        setmealQuery.setStatus(StatusConstant.ENABLE);
+        List<Setmeal> setmeals = setmealService.list(setmealQuery);
+        Map<Long, List<Setmeal>> setmealMap = setmeals.stream()
+                .collect(Collectors.groupingBy(Setmeal::getCategoryId));
+        Map<Long, List<DishItemVO>> dishItemMap = setmealService.getDishItemsBySetmealIds(
+                setmeals.stream().map(Setmeal::getId).collect(Collectors.toList()));
+
+        List<MenuCategoryVO> categoryVOList = new ArrayList<>();
+        for (Category category : categories) {
+            List<MenuSetmealVO> setmealVOList = new ArrayList<>();
+            for (Setmeal setmeal : setmealMap.getOrDefault(category.getId(), new ArrayList<>())) {
+                setmealVOList.add(MenuSetmealVO.builder()
+                        .id(setmeal.getId())
+                        .categoryId(setmeal.getCategoryId())
+                        .name(setmeal.getName())
+                        .price(setmeal.getPrice())
+                        .description(setmeal.getDescription())
+                        .image(setmeal.getImage())
+                        .dishItems(dishItemMap.getOrDefault(setmeal.getId(), new ArrayList<>()))
+                        .build());
+            }
+
+            categoryVOList.add(MenuCategoryVO.builder()
+                    .id(category.getId())
+                    .type(category.getType())
+                    .name(category.getName())
+                    .sort(category.getSort())
+                    .dishes(dishMap.getOrDefault(category.getId(), new ArrayList<>()))
+                    .setmeals(setmealVOList)
+                    .build());
+        }
+        return MenuSnapshotVO.builder().categories(categoryVOList).build();
+    }
+
+    private void saveToFile(MenuSnapshot newSnapshot) {
+        MenuSnapshotFile file = snapshotFile();
+        if (file == null) {
+            return;
+        }
+        try {
+            file.write(newSnapshot);
+        } catch (IOException e) {
+            log.warn("保存菜单快照文件失败：{}", file.getPath(), e);
+        }
+    }
+
+    /**
+     * 快照文件，相对路径基于配置的基础目录解析
+     *
+     * @return 未配置快照文件时返回null
+     */
+    private MenuSnapshotFile snapshotFile() {
+        String file = menuCacheProperties.getSnapshotFile();
+        if (file == null || file.isEmpty()) {
+            return null;
+        }
+        Path path = Paths.get(file);
+        String baseDir = menuCacheProperties.getSnapshotBaseDir();
+        if (!path.isAbsolute() && baseDir != null && !baseDir.isEmpty()) {
+            path = Paths.get(baseDir).resolve(path);
+        }
+        return new MenuSnapshotFile(path.toString());
+    }
+
+    private byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private String etagOf(byte[] json) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.sky.cache;
+
+import com.sky.constant.StatusConstant;
+import com.sky.entity.Category;
+import com.sky.entity.Dish;
+import com.sky.entity.Setmeal;
+import com.sky.properties.MenuCacheProperties;
+import com.sky.service.CategoryService;
+import com.sky.service.DishService;
+import com.sky.service.SetmealService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 启动时预热菜单缓存
+ * ApplicationRunner在应用报告就绪(readiness)之前执行，预热完成后第一批请求不会直接访问数据库：
+ * 1.菜单快照：本地文件存在时先加载文件，再在后台根据数据库重建；否则同步构建
+ * 2.将分类列表以及每个启用分类下的菜品或套餐列表加载到两级缓存中
+ */
+@Component
+@Slf4j
+public class MenuWarmUpRunner implements ApplicationRunner {
+
+    //菜品分类
+    private static final Integer CATEGORY_TYPE_DISH = 1;
+    //套餐分类
+    private static final Integer CATEGORY_TYPE_SETMEAL = 2;
+
+    @Autowired
+    private MenuCache menuCache;
+    @Autowired
+    private MenuSnapshotManager menuSnapshotManager;
+    @Autowired
+    private MenuCacheProperties menuCacheProperties;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private DishService dishService;
+    @Autowired
+    private SetmealService setmealService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!menuCacheProperties.isWarmUp()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            // 1.菜单快照
+            if (menuSnapshotManager.loadFromFile()) {
+                menuSnapshotManager.scheduleRebuild();
+            } else {
+                menuSnapshotManager.rebuild();
+            }
+
+            // 2.分类、菜品、套餐列表
+            List<Category> categories = menuCache.getList(MenuCache.FAMILY_CATEGORY, null, () -> categoryService.list(null));
+            for (Integer type : new Integer[]{CATEGORY_TYPE_DISH, CATEGORY_TYPE_SETMEAL}) {
+                menuCache.getList(MenuCache.FAMILY_CATEGORY, type, () -> categoryService.list(type));
+            }
+            for (Category category : categories) {
+                Long categoryId = category.getId();
+                if (CATEGORY_TYPE_DISH.equals(category.getType())) {
+                    menuCache.getList(MenuCache.FAMILY_DISH, categoryId, () -> {
+                        Dish dish = new Dish();
+                        dish.setCategoryId(categoryId);
+                        dish.setStatus(StatusConstant.ENABLE);
+                        return dishService.listWithFlavor(dish);
+                    });
+                } else if (CATEGORY_TYPE_SETMEAL.equals(category.getType())) {
+                    menuCache.getList(MenuCache.FAMILY_SETMEAL, categoryId, () -> {
+                        Setmeal setmeal = new Setmeal();
+                        setmeal.setCategoryId(categoryId);
+                        setmeal.setStatus(StatusConstant.ENABLE);
+                        return setmealService.list(setmeal);
+                    });
+                }
+            }
+            log.info("菜单缓存预热完成，分类数：{}，耗时：{}ms", categories.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            // 预热失败不影响启动，请求到来时按原有逻辑加载
+            log.error("菜单缓存预热失败", e);
+        }
+    }
+}
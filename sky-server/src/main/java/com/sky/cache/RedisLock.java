@@ -0,0 +1,54 @@
+package com.sky.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于redis的互斥锁，用于多个节点中同一时间只允许一个节点执行的任务（计数重建、每日汇总等）
+ * 锁带有过期时间，持有锁的节点宕机后自动释放
+ */
+@Component
+@Slf4j
+public class RedisLock {
+
+    private static final String KEY_PREFIX = "lock:";
+
+    // 只有锁仍属于自己时才删除，避免删除超时后被其他节点获取的锁
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0",
+            Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 获取锁并执行任务，锁已被其他节点持有时直接返回
+     *
+     * @param name          锁名称
+     * @param timeoutMillis 锁的过期时间，应大于任务的最长执行时间
+     * @param action
+     * @return 是否获取到锁并执行了任务
+     */
+    public boolean runIfLocked(String name, long timeoutMillis, Runnable action) {
+        String key = KEY_PREFIX + name;
+        String token = UUID.randomUUID().toString();
+        Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(key, token, timeoutMillis, TimeUnit.MILLISECONDS);
+        if (!Boolean.TRUE.equals(locked)) {
+            log.debug("锁已被其他节点持有，跳过执行：{}", name);
+            return false;
+        }
+        try {
+            action.run();
+            return true;
+        } finally {
+            stringRedisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(key), token);
+        }
+    }
+}
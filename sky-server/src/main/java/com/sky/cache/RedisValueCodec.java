@@ -0,0 +1,188 @@
+package com.sky.cache;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sky.properties.RedisCodecProperties;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * redis缓存值编解码器，RedisTemplate和Spring Cache共用
+ * 编码结果的第1个字节为格式标记：低7位为格式(1 json)，最高位表示正文经过deflate压缩；
+ * json正文带有类型信息，忽略未知属性，VO类增减字段后旧缓存仍可读取；
+ * 读取时只允许还原com.sky下的类和java.util、java.time、java.math包中的类，防止篡改的缓存值借助类型信息实例化任意类
+ * 以0xAC开头的值是JDK序列化的旧数据，按JDK格式读取，保证切换格式时已有缓存可用
+ * 每次写入按值的类型(列表取元素类型)记录redis.value.bytes，用于观察各类缓存的体积
+ */
+public class RedisValueCodec implements RedisSerializer<Object> {
+
+    private static final byte FORMAT_JSON = 1;
+    private static final byte FLAG_DEFLATE = (byte) 0x80;
+    private static final byte JDK_STREAM_MAGIC = (byte) 0xAC;
+
+    private final RedisCodecProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final GenericJackson2JsonRedisSerializer jsonSerializer;
+    private final ObjectWriter collectionWriter;
+    private final JdkSerializationRedisSerializer jdkSerializer = new JdkSerializationRedisSerializer();
+
+    public RedisValueCodec(RedisCodecProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        //收到未知属性时不报异常
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        //写入非final类型的类名，读取时还原为原来的类型(例如List<DishVO>)
+        objectMapper.activateDefaultTyping(typeValidator(),
+                ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY);
+        GenericJackson2JsonRedisSerializer.registerNullValueSerializer(objectMapper, null);
+        this.jsonSerializer = new GenericJackson2JsonRedisSerializer(objectMapper);
+        //List.of等JDK不可变集合是final类，按运行时类型写出时不带类型信息，读取时无法还原，集合按Object类型写出
+        this.collectionWriter = objectMapper.writerFor(Object.class);
+    }
+
+    /**
+     * 允许还原的类型：com.sky下的类，java.util、java.time、java.math包中的类(不含子包)，以及Spring Cache的空值标记
+     *
+     * @return
+     */
+    private static PolymorphicTypeValidator typeValidator() {
+        return BasicPolymorphicTypeValidator.builder()
+                .allowIfSubType("com.sky.")
+                .allowIfSubType(Pattern.compile("java\\.(util|time|math)\\.[^.]+"))
+                .allowIfSubType(NullValue.class)
+                .build();
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+
+        byte[] bytes;
+        if ("jdk".equals(properties.getFormat())) {
+            bytes = jdkSerializer.serialize(value);
+        } else {
+            byte[] body = writeJson(value);
+            byte format = FORMAT_JSON;
+            if (properties.isCompress() && body.length > properties.getCompressThreshold()) {
+                body = deflate(body);
+                format |= FLAG_DEFLATE;
+            }
+            bytes = new byte[body.length + 1];
+            bytes[0] = format;
+            System.arraycopy(body, 0, bytes, 1, body.length);
+        }
+
+        DistributionSummary.builder("redis.value.bytes")
+                .baseUnit("bytes")
+                .tag("family", familyOf(value))
+                .register(meterRegistry)
+                .record(bytes.length);
+        return bytes;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] == JDK_STREAM_MAGIC) {
+            return jdkSerializer.deserialize(bytes);
+        }
+
+        byte format = bytes[0];
+        if ((format & ~FLAG_DEFLATE) != FORMAT_JSON) {
+            throw new SerializationException("未知的缓存值格式：" + format);
+        }
+        byte[] body = Arrays.copyOfRange(bytes, 1, bytes.length);
+        if ((format & FLAG_DEFLATE) != 0) {
+            body = inflate(body);
+        }
+        return jsonSerializer.deserialize(body);
+    }
+
+    private byte[] writeJson(Object value) {
+        if (value instanceof Collection || value instanceof Map) {
+            try {
+                return collectionWriter.writeValueAsBytes(value);
+            } catch (JsonProcessingException e) {
+                throw new SerializationException("序列化缓存值失败", e);
+            }
+        }
+        return jsonSerializer.serialize(value);
+    }
+
+    private String familyOf(Object value) {
+        if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            if (collection.isEmpty()) {
+                return "empty";
+            }
+            Object first = collection.iterator().next();
+            return "List<" + (first == null ? "null" : first.getClass().getSimpleName()) + ">";
+        }
+        return value.getClass().getSimpleName();
+    }
+
+    private byte[] deflate(byte[] body) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(body);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 2);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private byte[] inflate(byte[] body) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(body);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.length * 4);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && inflater.needsInput()) {
+                    throw new SerializationException("压缩的缓存值不完整");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new SerializationException("解压缓存值失败", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.sky.cache;
+
+import com.sky.properties.MenuCacheProperties;
+import com.sky.service.SetmealService;
+import com.sky.vo.DishItemVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 套餐包含的菜品列表缓存
+ * 列表存放在MenuCache的setmealItems类别中，key为套餐id；
+ * 加载列表时同时维护 菜品 -> 套餐 的反向索引(redis集合 setmeal_item_index:{dishId})，
+ * 修改某个菜品时只清除包含该菜品的套餐
+ */
+@Component
+@Slf4j
+public class SetmealItemCache {
+
+    private static final String INDEX_KEY_PREFIX = "setmeal_item_index:";
+    //反向索引比缓存多保留的时间(毫秒)
+    private static final long INDEX_TTL_MARGIN = TimeUnit.MINUTES.toMillis(10);
+
+    @Autowired
+    private MenuCache menuCache;
+    @Autowired
+    private SetmealService setmealService;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private MenuCacheProperties menuCacheProperties;
+
+    /**
+     * 查询套餐包含的菜品列表
+     *
+     * @param setmealId
+     * @return
+     */
+    public List<DishItemVO> getDishItems(Long setmealId) {
+        return menuCache.getList(MenuCache.FAMILY_SETMEAL_ITEMS, setmealId, () -> {
+            // 先写入反向索引再写入缓存，保证缓存中的列表都能通过索引找到
+            List<DishItemVO> items = setmealService.getDishItemById(setmealId);
+            index(setmealId, items);
+            return items;
+        });
+    }
+
+    /**
+     * 清除指定套餐的缓存
+     *
+     * @param setmealIds
+     */
+    public void evictBySetmealIds(Collection<Long> setmealIds) {
+        menuCache.evict(MenuCache.FAMILY_SETMEAL_ITEMS, setmealIds);
+    }
+
+    /**
+     * 清除包含指定菜品的套餐的缓存
+     *
+     * @param dishIds
+     */
+    public void evictByDishIds(Collection<Long> dishIds) {
+        List<String> indexKeys = dishIds.stream().map(this::indexKey).collect(Collectors.toList());
+        if (indexKeys.isEmpty()) {
+            return;
+        }
+        Set<String> setmealIds = stringRedisTemplate.opsForSet().union(indexKeys);
+        if (setmealIds == null || setmealIds.isEmpty()) {
+            return;
+        }
+        log.debug("菜品{}变更，清除套餐菜品缓存：{}", dishIds, setmealIds);
+        menuCache.evict(MenuCache.FAMILY_SETMEAL_ITEMS,
+                setmealIds.stream().map(Long::valueOf).collect(Collectors.toList()));
+    }
+
+    /**
+     * 根据刚加载的菜品列表记录每个菜品到套餐的反向索引
+     * 索引先于列表写入，过期时间比缓存多INDEX_TTL_MARGIN，保证缓存中的列表过期前索引不会先过期；
+     * 套餐修改后索引中可能残留已移除的菜品，只会多清除一次缓存，不影响正确性
+     *
+     * @param setmealId
+     * @param items
+     */
+    private void index(Long setmealId, List<DishItemVO> items) {
+        long ttl = menuCacheProperties.getRedisTtl() + INDEX_TTL_MARGIN;
+        for (DishItemVO item : items) {
+            String key = indexKey(item.getDishId());
+            stringRedisTemplate.opsForSet().add(key, String.valueOf(setmealId));
+            stringRedisTemplate.expire(key, ttl, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private String indexKey(Long dishId) {
+        return INDEX_KEY_PREFIX + dishId;
+    }
+}
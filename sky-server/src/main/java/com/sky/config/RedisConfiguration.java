@@ -1,24 +1,72 @@
 package com.sky.config;
 
+import com.sky.cache.RedisValueCodec;
+import com.sky.properties.RedisCodecProperties;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
 @Slf4j
 public class RedisConfiguration {
 
+    /**
+     * redis缓存值编解码器
+     *
+     * @param redisCodecProperties
+     * @param meterRegistry
+     * @return
+     */
     @Bean
-    public RedisTemplate redisTemplate(RedisConnectionFactory redisConnectionFactory){
+    public RedisValueCodec redisValueCodec(RedisCodecProperties redisCodecProperties, MeterRegistry meterRegistry) {
+        log.info("创建redis缓存值编解码器，格式：{}", redisCodecProperties.getFormat());
+        return new RedisValueCodec(redisCodecProperties, meterRegistry);
+    }
+
+    @Bean
+    public RedisTemplate redisTemplate(RedisConnectionFactory redisConnectionFactory, RedisValueCodec redisValueCodec){
         log.info("开始创建redis模板对象...");
         RedisTemplate redisTemplate = new RedisTemplate();
         //设置redis的连接工厂对象
         redisTemplate.setConnectionFactory(redisConnectionFactory);
         //设置redis key的序列化器
         redisTemplate.setKeySerializer(new StringRedisSerializer());
+        //设置redis value的序列化器
+        redisTemplate.setValueSerializer(redisValueCodec);
+        redisTemplate.setHashKeySerializer(new StringRedisSerializer());
+        redisTemplate.setHashValueSerializer(redisValueCodec);
         return redisTemplate;
     }
+
+    /**
+     * redis消息监听容器，用于接收缓存失效广播
+     *
+     * @param redisConnectionFactory
+     * @return
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        return container;
+    }
+
+    /**
+     * Spring Cache使用与RedisTemplate相同的编解码器
+     *
+     * @param redisValueCodec
+     * @return
+     */
+    @Bean
+    public RedisCacheConfiguration redisCacheConfiguration(RedisValueCodec redisValueCodec) {
+        return RedisCacheConfiguration.defaultCacheConfig()
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(redisValueCodec));
+    }
 }
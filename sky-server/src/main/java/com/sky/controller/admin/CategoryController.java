@@ -1,5 +1,6 @@
 package com.sky.controller.admin;
 
+import com.sky.cache.MenuCache;
 import com.sky.dto.CategoryDTO;
 import com.sky.dto.CategoryPageQueryDTO;
 import com.sky.entity.Category;
@@ -26,6 +27,8 @@ public class CategoryController {
 
     @Autowired
     private CategoryService categoryService;
+    @Autowired
+    private MenuCache menuCache;
 
     /**
      * 新增分类
@@ -37,6 +40,7 @@ public class CategoryController {
     public Result save(@RequestBody CategoryDTO categoryDTO){
         log.info("新增分类：{}", categoryDTO);
         categoryService.save(categoryDTO);
+        menuCache.evictAll(MenuCache.FAMILY_CATEGORY);
         return Result.success();
     }
 
@@ -62,6 +66,7 @@ public class CategoryController {
     public Result deleteById(Long id){
         log.info("删除分类, {}", id);
         categoryService.deleteById(id);
+        menuCache.evictAll(MenuCache.FAMILY_CATEGORY);
         return Result.success();
     }
 
@@ -75,6 +80,7 @@ public class CategoryController {
     public Result update(@RequestBody CategoryDTO categoryDTO){
         log.info("修改分类, {}", categoryDTO);
         categoryService.update(categoryDTO);
+        menuCache.evictAll(MenuCache.FAMILY_CATEGORY);
         return Result.success();
     }
 
@@ -86,6 +92,7 @@ public class CategoryController {
     @ApiOperation("启用禁用分类")
     public Result updateStatus(@PathVariable("status") Integer status, Long id){
         categoryService.updateStatus(status,id);
+        menuCache.evictAll(MenuCache.FAMILY_CATEGORY);
         return Result.success();
     }
 
@@ -1,21 +1,23 @@
 package com.sky.controller.admin;
 
+import com.sky.cache.MenuCache;
+import com.sky.cache.SetmealItemCache;
 import com.sky.dto.DishDTO;
 import com.sky.dto.DishPageQueryDTO;
 import com.sky.entity.Dish;
 import com.sky.result.PageResult;
 import com.sky.result.Result;
 import com.sky.service.DishService;
+import com.sky.service.SetmealService;
 import com.sky.vo.DishVO;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
 
 /**
  * 菜品管理
@@ -29,7 +31,11 @@ public class DishController {
     @Autowired
     private DishService dishService;
     @Autowired
-    private RedisTemplate redisTemplate;
+    private MenuCache menuCache;
+    @Autowired
+    private SetmealItemCache setmealItemCache;
+    @Autowired
+    private SetmealService setmealService;
 
     /**
      * 新增菜品
@@ -43,8 +49,7 @@ public class DishController {
         dishService.saveWithFlavor(dishDTO);
 
         // 每次新增删除缓存数据重新加载
-        String key = "dish_" + dishDTO.getCategoryId();
-        cleanCache(key);
+        menuCache.evict(MenuCache.FAMILY_DISH, dishDTO.getCategoryId());
 
         return Result.success();
     }
@@ -70,10 +75,11 @@ public class DishController {
     @ApiOperation("批量删除菜品")
     public Result deleteByIds(@RequestParam("ids") List<Long> ids){
         log.info("批量删除菜品：{}", ids);
+        List<Long> categoryIds = dishService.getCategoryIds(ids);
         dishService.deleteBatch(ids);
 
-        // 清理菜品缓存数据
-        cleanCache("dish_*");
+        // 清理菜品所属分类的缓存数据
+        menuCache.evict(MenuCache.FAMILY_DISH, categoryIds);
 
         return Result.success();
     }
@@ -99,10 +105,14 @@ public class DishController {
     @ApiOperation("修改菜品信息")
     public Result update(@RequestBody DishDTO dishDTO){
         log.info("修改菜品信息：{}", dishDTO);
+        List<Long> categoryIds = dishService.getCategoryIds(Collections.singletonList(dishDTO.getId()));
         dishService.updateWithFlavor(dishDTO);
 
-        // 清理菜品缓存数据
-        cleanCache("dish_*");
+        // 清理修改前后所属分类的缓存数据
+        categoryIds.add(dishDTO.getCategoryId());
+        menuCache.evict(MenuCache.FAMILY_DISH, categoryIds);
+        // 清理包含该菜品的套餐的菜品列表缓存
+        setmealItemCache.evictByDishIds(Collections.singletonList(dishDTO.getId()));
 
         return Result.success();
     }
@@ -117,10 +127,15 @@ public class DishController {
     @ApiOperation("菜品起售停售")
     public Result updateStatus(@PathVariable Integer status, Long id){
         log.info("菜品起售停售：status:{} id:{}",status, id);
-        dishService.updateStatus(status, id);
+        List<Long> setmealIds = dishService.updateStatus(status, id);
 
-        // 清理菜品缓存数据
-        cleanCache("dish_*");
+        // 清理菜品所属分类的缓存数据
+        menuCache.evict(MenuCache.FAMILY_DISH, dishService.getCategoryIds(Collections.singletonList(id)));
+        setmealItemCache.evictByDishIds(Collections.singletonList(id));
+        // 停售菜品时包含该菜品的套餐也一起停售，清理这些套餐所属分类的缓存数据
+        if (!setmealIds.isEmpty()) {
+            menuCache.evict(MenuCache.FAMILY_SETMEAL, setmealService.getCategoryIds(setmealIds));
+        }
 
         return Result.success();
     }
@@ -137,13 +152,4 @@ public class DishController {
         List<Dish> list = dishService.list(categoryId);
         return Result.success(list);
     }
-
-    /**
-     * 清理缓存的菜品数据
-     * @param pattern
-     */
-    private void cleanCache(String pattern){
-        Set keys = redisTemplate.keys(pattern);
-        redisTemplate.delete(keys);
-    }
 }
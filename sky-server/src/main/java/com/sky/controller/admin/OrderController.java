@@ -4,6 +4,7 @@ import com.sky.dto.OrdersCancelDTO;
 import com.sky.dto.OrdersConfirmDTO;
 import com.sky.dto.OrdersPageQueryDTO;
 import com.sky.dto.OrdersRejectionDTO;
+import com.sky.properties.ExportJobProperties;
 import com.sky.result.PageResult;
 import com.sky.result.Result;
 import com.sky.service.OrderService;
@@ -14,7 +15,21 @@ import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.xmlbeans.impl.xb.xsdschema.Public;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.Callable;
 
 /**
  * 订单管理
@@ -25,8 +40,12 @@ import org.springframework.web.bind.annotation.*;
 @Slf4j
 public class OrderController {
 
+    private static final String EXPORT_TIMEOUT_INTERCEPTOR = "orderExportTimeout";
+
     @Autowired
     private OrderService orderService;
+    @Autowired
+    private ExportJobProperties exportJobProperties;
 
     /**
      * 订单搜索
@@ -41,6 +60,36 @@ public class OrderController {
         return Result.success(pageResult);
     }
 
+    /**
+     * 按订单搜索条件导出CSV，数据边查询边写出
+     * 导出耗时较长，只为本次请求设置较长的异步超时，其他异步请求仍使用默认超时
+     * @param ordersPageQueryDTO 与订单搜索相同的条件，忽略分页参数
+     * @param request
+     * @return
+     */
+    @GetMapping("/export.csv")
+    @ApiOperation("导出订单搜索结果")
+    public ResponseEntity<StreamingResponseBody> exportCsv(OrdersPageQueryDTO ordersPageQueryDTO, HttpServletRequest request){
+        log.info("导出订单搜索结果：{}", ordersPageQueryDTO);
+        long timeout = exportJobProperties.getStreamTimeout();
+        // 异步处理开始前调用，拦截器只注册在本次请求的WebAsyncManager上
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(EXPORT_TIMEOUT_INTERCEPTOR,
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void beforeConcurrentHandling(NativeWebRequest webRequest, Callable<T> task) {
+                        ((AsyncWebRequest) webRequest).setTimeout(timeout);
+                    }
+                });
+        ContentDisposition contentDisposition = ContentDisposition.attachment()
+                .filename("订单_" + LocalDate.now() + ".csv", StandardCharsets.UTF_8)
+                .build();
+        StreamingResponseBody body = out -> orderService.exportCsv(ordersPageQueryDTO, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition.toString())
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .body(body);
+    }
+
     /**
      * 各个状态的订单数量统计
      * @return
@@ -1,5 +1,6 @@
 package com.sky.controller.admin;
 
+import com.sky.enumeration.ReportGranularity;
 import com.sky.result.Result;
 import com.sky.service.ReportService;
 import com.sky.vo.*;
@@ -9,7 +10,10 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.servlet.http.HttpServletRequest;
@@ -32,15 +36,17 @@ public class ReportController {
      * 营业额统计
      * @param begin
      * @param end
+     * @param granularity 统计粒度：hour、day、week、month
      * @return
      */
     @GetMapping("/turnoverStatistics")
     @ApiOperation("营业额统计")
     public Result<TurnoverReportVO> turnoverStatistics(
             @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate begin,
-            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate end) {
+            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate end,
+            @RequestParam(defaultValue = "day") String granularity) {
         log.info("营业额统计：{},{}", begin, end);
-        TurnoverReportVO turnoverReportVO = reportService.getTurnoverStatistics(begin,end);
+        TurnoverReportVO turnoverReportVO = reportService.getTurnoverStatistics(begin,end, ReportGranularity.of(granularity));
         return Result.success(turnoverReportVO);
     }
 
@@ -48,16 +54,18 @@ public class ReportController {
      * 用户统计
      * @param begin
      * @param end
+     * @param granularity 统计粒度：hour、day、week、month
      * @return
      */
     @GetMapping("userStatistics")
     @ApiOperation("用户统计")
     public Result<UserReportVO> userStatistics(
             @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate begin,
-            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate end
+            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate end,
+            @RequestParam(defaultValue = "day") String granularity
     ){
         log.info("用户统计：{}，{}", begin, end);
-        UserReportVO userReportVO = reportService.getUserStatistics(begin, end);
+        UserReportVO userReportVO = reportService.getUserStatistics(begin, end, ReportGranularity.of(granularity));
         return Result.success(userReportVO);
     }
 
@@ -65,16 +73,18 @@ public class ReportController {
      * 订单统计
      * @param begin
      * @param end
+     * @param granularity 统计粒度：hour、day、week、month
      * @return
      */
     @GetMapping("/ordersStatistics")
     @ApiOperation("订单统计")
     public Result<OrderReportVO> orderStatistics(
             @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate begin,
-            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate end
+            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate end,
+            @RequestParam(defaultValue = "day") String granularity
     ){
         log.info("订单统计：{}，{}", begin, end);
-        OrderReportVO orderReportVO = reportService.getOrderStatistics(begin, end);
+        OrderReportVO orderReportVO = reportService.getOrderStatistics(begin, end, ReportGranularity.of(granularity));
         return Result.success(orderReportVO);
     }
 
@@ -95,12 +105,77 @@ public class ReportController {
         return Result.success(salesTop10ReportVO);
     }
 
+    /**
+     * 重新汇总每日营业数据
+     * @param begin
+     * @param end
+     * @return 汇总的天数
+     */
+    @PostMapping("/rollup")
+    @ApiOperation("重新汇总每日营业数据")
+    public Result<Integer> rollup(
+            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate begin,
+            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate end
+    ){
+        log.info("重新汇总每日营业数据：{}，{}", begin, end);
+        return Result.success(reportService.rollup(begin, end));
+    }
 
+    /**
+     * 导出Excel运营数据报表
+     * @param begin 为空时导出最近30天
+     * @param end
+     * @param response
+     */
     @GetMapping("/export")
     @ApiOperation("导出Excel运营数据报表")
-    public void export(HttpServletResponse response){
-        log.info("导出Excel运营数据报表");
-        reportService.exportBusinessData(response);
+    public void export(
+            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate begin,
+            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate end,
+            HttpServletResponse response
+    ){
+        log.info("导出Excel运营数据报表：{}，{}", begin, end);
+        reportService.exportBusinessData(begin, end, response);
+    }
+
+    /**
+     * 创建异步导出任务，适用于较长的日期区间
+     * @param begin 为空时导出最近30天
+     * @param end
+     * @return
+     */
+    @PostMapping("/export/jobs")
+    @ApiOperation("创建异步导出任务")
+    public Result<ExportJobVO> createExportJob(
+            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate begin,
+            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate end
+    ){
+        log.info("创建异步导出任务：{}，{}", begin, end);
+        return Result.success(reportService.createExportJob(begin, end));
+    }
+
+    /**
+     * 查询异步导出任务的状态和进度
+     * @param id
+     * @return
+     */
+    @GetMapping("/export/jobs/{id}")
+    @ApiOperation("查询异步导出任务")
+    public Result<ExportJobVO> getExportJob(@PathVariable String id){
+        return Result.success(reportService.getExportJob(id));
+    }
+
+    /**
+     * 下载异步导出任务生成的文件
+     * @param id
+     * @param request
+     * @param response
+     */
+    @GetMapping("/export/jobs/{id}/file")
+    @ApiOperation("下载异步导出文件")
+    public void downloadExport(@PathVariable String id, HttpServletRequest request, HttpServletResponse response){
+        log.info("下载异步导出文件：{}", id);
+        reportService.downloadExport(id, request, response);
     }
 
 }
@@ -1,5 +1,7 @@
 package com.sky.controller.admin;
 
+import com.sky.cache.MenuCache;
+import com.sky.cache.SetmealItemCache;
 import com.sky.dto.SetmealDTO;
 import com.sky.dto.SetmealPageQueryDTO;
 import com.sky.entity.Setmeal;
@@ -11,10 +13,9 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -28,6 +29,10 @@ public class SetmealController {
 
     @Autowired
     private SetmealService setmealService;
+    @Autowired
+    private MenuCache menuCache;
+    @Autowired
+    private SetmealItemCache setmealItemCache;
 
     /**
      * 新增套餐
@@ -36,10 +41,10 @@ public class SetmealController {
      */
     @PostMapping
     @ApiOperation("新增套餐")
-    @CacheEvict(cacheNames = "setmealCache", key = "#setmealDTO.categoryId")
     public Result save(@RequestBody SetmealDTO setmealDTO){
         log.info("新增套餐：{}", setmealDTO);
         setmealService.saveWithDish(setmealDTO);
+        menuCache.evict(MenuCache.FAMILY_SETMEAL, setmealDTO.getCategoryId());
         return Result.success();
     }
 
@@ -63,10 +68,12 @@ public class SetmealController {
      */
     @DeleteMapping
     @ApiOperation("批量删除套餐")
-    @CacheEvict(cacheNames = "setmealCache", allEntries = true)
     public Result delete(@RequestParam("ids") List<Long> ids){
         log.info("批量删除套餐：{}", ids);
+        List<Long> categoryIds = setmealService.getCategoryIds(ids);
         setmealService.deleteBatch(ids);
+        menuCache.evict(MenuCache.FAMILY_SETMEAL, categoryIds);
+        setmealItemCache.evictBySetmealIds(ids);
         return Result.success();
     }
 
@@ -90,10 +97,14 @@ public class SetmealController {
      */
     @PutMapping
     @ApiOperation("修改套餐信息")
-    @CacheEvict(cacheNames = "setmealCache", allEntries = true)
     public Result update(@RequestBody SetmealDTO setmealDTO){
         log.info("修改套餐信息：{}", setmealDTO);
+        List<Long> categoryIds = setmealService.getCategoryIds(Collections.singletonList(setmealDTO.getId()));
         setmealService.update(setmealDTO);
+        // 清理修改前后所属分类的缓存数据
+        categoryIds.add(setmealDTO.getCategoryId());
+        menuCache.evict(MenuCache.FAMILY_SETMEAL, categoryIds);
+        setmealItemCache.evictBySetmealIds(Collections.singletonList(setmealDTO.getId()));
         return Result.success();
     }
 
@@ -103,10 +114,10 @@ public class SetmealController {
      */
     @PostMapping("/status/{status}")
     @ApiOperation("起售禁售套餐")
-    @CacheEvict(cacheNames = "setmealCache", allEntries = true)
     public Result updateStatus(@PathVariable Integer status, @RequestParam Long id){
         log.info("起售禁售套餐：status:{},id:{}", status, id);
         setmealService.updateStatus(status, id);
+        menuCache.evict(MenuCache.FAMILY_SETMEAL, setmealService.getCategoryIds(Collections.singletonList(id)));
         return Result.success();
     }
 }
@@ -1,5 +1,6 @@
 package com.sky.controller.user;
 
+import com.sky.cache.MenuCache;
 import com.sky.entity.Category;
 import com.sky.result.Result;
 import com.sky.service.CategoryService;
@@ -21,6 +22,8 @@ public class CategoryController {
 
     @Autowired
     private CategoryService categoryService;
+    @Autowired
+    private MenuCache menuCache;
 
     /**
      * 查询分类
@@ -30,7 +33,7 @@ public class CategoryController {
     @GetMapping("/list")
     @ApiOperation("查询分类")
     public Result<List<Category>> list(Integer type){
-        List<Category> list = categoryService.list(type);
+        List<Category> list = menuCache.getList(MenuCache.FAMILY_CATEGORY, type, () -> categoryService.list(type));
         return Result.success(list);
     }
 }
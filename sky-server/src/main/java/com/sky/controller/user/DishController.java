@@ -1,21 +1,18 @@
 package com.sky.controller.user;
 
+import com.sky.cache.MenuCache;
 import com.sky.constant.StatusConstant;
 import com.sky.entity.Dish;
 import com.sky.result.Result;
 import com.sky.service.DishService;
-import com.sky.service.UserService;
 import com.sky.vo.DishVO;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 @RestController("userDishController")
 @RequestMapping("/user/dish")
@@ -26,7 +23,7 @@ public class DishController {
     @Autowired
     private DishService dishService;
     @Autowired
-    private RedisTemplate redisTemplate;
+    private MenuCache menuCache;
 
     /**
      * 根据分类id查询菜品
@@ -36,21 +33,13 @@ public class DishController {
     @GetMapping("/list")
     @ApiOperation("根据分类id查询菜品")
     public Result<List<DishVO>> list(Long categoryId) {
-        // 1.构造存入redis中的key
-        String key = "dish_" + categoryId;
-        // 2.查询reids中是否存在菜品缓存
-        List<DishVO> list = (List<DishVO>) redisTemplate.opsForValue().get(key);
-        // 3.如果存在，直接返回
-        if (list != null && list.size() > 0) {
-            return Result.success(list);
-        }
-        // 4.如果不存在，查询数据库
-        Dish dish = new Dish();
-        dish.setCategoryId(categoryId);
-        dish.setStatus(StatusConstant.ENABLE);
-        list = dishService.listWithFlavor(dish);
-        // 5.将数据库查询到的数据缓存到redis
-        redisTemplate.opsForValue().set(key, list);
+        // 依次查询本地缓存、redis，都不存在时查询数据库并写入缓存
+        List<DishVO> list = menuCache.getList(MenuCache.FAMILY_DISH, categoryId, () -> {
+            Dish dish = new Dish();
+            dish.setCategoryId(categoryId);
+            dish.setStatus(StatusConstant.ENABLE);
+            return dishService.listWithFlavor(dish);
+        });
         return Result.success(list);
     }
 }
@@ -0,0 +1,87 @@
+package com.sky.controller.user;
+
+import com.sky.cache.MenuSnapshot;
+import com.sky.cache.MenuSnapshotManager;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+@RestController("userMenuController")
+@RequestMapping("/user/menu")
+@Api(tags = "C端-菜单接口")
+@Slf4j
+public class MenuController {
+
+    @Autowired
+    private MenuSnapshotManager menuSnapshotManager;
+
+    /**
+     * 查询完整菜单
+     * 直接输出预先序列化的字节，客户端支持时输出gzip压缩后的字节；两种编码使用不同的ETag，ETag未变化时返回304
+     *
+     * @param request
+     * @param response
+     */
+    @GetMapping("/snapshot")
+    @ApiOperation("查询完整菜单")
+    public void snapshot(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        MenuSnapshot snapshot = menuSnapshotManager.getSnapshot();
+
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        String etag = gzip ? snapshot.getGzipEtag() : snapshot.getEtag();
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        byte[] body = snapshot.getJson();
+        if (gzip) {
+            body = snapshot.getGzip();
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * If-None-Match中是否有与etag相同的实体标签
+     * 按逗号拆分后逐个比较，If-None-Match使用弱比较，忽略W/前缀；*匹配任意etag
+     *
+     * @param ifNoneMatch
+     * @param etag
+     * @return
+     */
+    private boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
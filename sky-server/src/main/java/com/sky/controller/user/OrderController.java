@@ -1,10 +1,12 @@
 package com.sky.controller.user;
 
+import com.sky.dto.OrdersCursorQueryDTO;
 import com.sky.dto.OrdersPaymentDTO;
 import com.sky.dto.OrdersSubmitDTO;
 import com.sky.result.PageResult;
 import com.sky.result.Result;
 import com.sky.service.OrderService;
+import com.sky.vo.OrderCursorPageVO;
 import com.sky.vo.OrderPaymentVO;
 import com.sky.vo.OrderSubmitVO;
 import com.sky.vo.OrderVO;
@@ -66,6 +68,19 @@ public class OrderController {
         return Result.success(pageResult);
     }
 
+    /**
+     * 历史订单滚动加载，基于游标分页，不统计总数
+     *
+     * @param ordersCursorQueryDTO 首次加载不传lastOrderTime和lastId，之后传入上一次返回的nextOrderTime和nextId
+     * @return
+     */
+    @GetMapping("/historyOrders/cursor")
+    @ApiOperation("历史订单滚动加载")
+    public Result<OrderCursorPageVO> cursor(OrdersCursorQueryDTO ordersCursorQueryDTO) {
+        OrderCursorPageVO orderCursorPageVO = orderService.cursorQuery4User(ordersCursorQueryDTO);
+        return Result.success(orderCursorPageVO);
+    }
+
     /**
      * 查询订单详情
      *
@@ -1,5 +1,7 @@
 package com.sky.controller.user;
 
+import com.sky.cache.MenuCache;
+import com.sky.cache.SetmealItemCache;
 import com.sky.constant.StatusConstant;
 import com.sky.entity.Setmeal;
 import com.sky.result.Result;
@@ -9,7 +11,6 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -24,6 +25,10 @@ import java.util.List;
 public class SetmealController {
     @Autowired
     private SetmealService setmealService;
+    @Autowired
+    private MenuCache menuCache;
+    @Autowired
+    private SetmealItemCache setmealItemCache;
 
     /**
      * 根据分类id查询套餐
@@ -31,14 +36,14 @@ public class SetmealController {
      */
     @GetMapping("/list")
     @ApiOperation("根据分类id查询套餐")
-    @Cacheable(cacheNames = "setmealCache", key = "#categoryId") // key - setmealCache::100
     public Result<List<Setmeal>> list(Long categoryId){
         log.info("根据分类id查询套餐：{}", categoryId);
-        Setmeal setmeal = new Setmeal();
-        setmeal.setCategoryId(categoryId);
-        setmeal.setStatus(StatusConstant.ENABLE);
-
-        List<Setmeal> list = setmealService.list(setmeal);
+        List<Setmeal> list = menuCache.getList(MenuCache.FAMILY_SETMEAL, categoryId, () -> {
+            Setmeal setmeal = new Setmeal();
+            setmeal.setCategoryId(categoryId);
+            setmeal.setStatus(StatusConstant.ENABLE);
+            return setmealService.list(setmeal);
+        });
         return Result.success(list);
     }
 
@@ -51,7 +56,7 @@ public class SetmealController {
     @ApiOperation("根据套餐id查询包含的菜品列表")
     public Result<List<DishItemVO>> getDishBySetmealId(@PathVariable("id") Long id){
         log.info("根据套餐id查询包含的菜品列表：{}", id);
-        List<DishItemVO> list = setmealService.getDishItemById(id);
+        List<DishItemVO> list = setmealItemCache.getDishItems(id);
         return Result.success(list);
     }
 }
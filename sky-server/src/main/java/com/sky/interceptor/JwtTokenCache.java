@@ -0,0 +1,139 @@
+package com.sky.interceptor;
+
+import com.sky.properties.JwtProperties;
+import com.sky.utils.JwtUtil;
+import io.jsonwebtoken.Claims;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 已校验jwt令牌的缓存
+ * 以 秘钥+令牌 的SHA-256摘要为key缓存解析后的claims，同一令牌重复请求时跳过验签和json解析；
+ * 缓存时间不超过令牌的过期时间和配置的最长缓存时间，条数超过上限时先清理过期条目，仍然超过则不再缓存；
+ * 命中率等指标由JwtTokenCacheMetrics导出
+ */
+@Component
+@Slf4j
+public class JwtTokenCache {
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    @Autowired
+    private JwtProperties jwtProperties;
+
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    private volatile long lastSweepTime;
+
+    /**
+     * 校验并解析令牌，命中缓存时直接返回缓存的claims
+     *
+     * @param secretKey jwt秘钥
+     * @param token     令牌
+     * @return
+     */
+    public Claims parse(String secretKey, String token) {
+        if (token == null) {
+            throw new IllegalArgumentException("token is null");
+        }
+        String key = digest(secretKey, token);
+        long now = System.currentTimeMillis();
+
+        Entry entry = cache.get(key);
+        if (entry != null) {
+            if (entry.expireAt > now) {
+                hitCount.increment();
+                return entry.claims;
+            }
+            cache.remove(key, entry);
+        }
+
+        missCount.increment();
+        Claims claims = JwtUtil.parseJWT(secretKey, token);
+        put(key, claims, now);
+        return claims;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * 缓存命中率
+     *
+     * @return
+     */
+    public double getHitRate() {
+        long hits = hitCount.sum();
+        long total = hits + missCount.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    private void put(String key, Claims claims, long now) {
+        long expireAt = now + jwtProperties.getCacheMaxTtl();
+        Date expiration = claims.getExpiration();
+        if (expiration != null) {
+            expireAt = Math.min(expireAt, expiration.getTime());
+        }
+        if (expireAt <= now) {
+            return;
+        }
+
+        if (cache.size() >= jwtProperties.getCacheMaxSize()) {
+            // 缓存已满时最多每秒清理一次过期条目，避免每次未命中都遍历整个缓存
+            if (now - lastSweepTime >= 1000) {
+                lastSweepTime = now;
+                cache.values().removeIf(e -> e.expireAt <= now);
+            }
+            if (cache.size() >= jwtProperties.getCacheMaxSize()) {
+                log.debug("jwt令牌缓存已满：{}", cache.size());
+                return;
+            }
+        }
+        cache.put(key, new Entry(claims, expireAt));
+    }
+
+    private String digest(String secretKey, String token) {
+        MessageDigest digest = DIGEST.get();
+        digest.update(secretKey.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static class Entry {
+        private final Claims claims;
+        private final long expireAt;
+
+        Entry(Claims claims, long expireAt) {
+            this.claims = claims;
+            this.expireAt = expireAt;
+        }
+    }
+}
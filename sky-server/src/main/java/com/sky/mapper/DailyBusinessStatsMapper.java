@@ -0,0 +1,76 @@
+package com.sky.mapper;
+
+import com.sky.dto.DailyGoodsSalesDTO;
+import com.sky.dto.GoodsSalesDTO;
+import com.sky.entity.DailyBusinessStats;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Mapper
+public interface DailyBusinessStatsMapper {
+
+    /**
+     * 创建每日营业数据汇总表
+     */
+    void createStatsTable();
+
+    /**
+     * 创建每日商品销量汇总表
+     */
+    void createDishSalesTable();
+
+    /**
+     * 批量插入或更新每日营业数据
+     * @param statsList
+     */
+    void upsertBatch(List<DailyBusinessStats> statsList);
+
+    /**
+     * 查询日期区间内的每日营业数据
+     * @param begin
+     * @param end
+     * @return
+     */
+    @Select("select * from daily_business_stats where stat_date between #{begin} and #{end} order by stat_date")
+    List<DailyBusinessStats> list(LocalDate begin, LocalDate end);
+
+    /**
+     * 统计日期区间内已汇总的天数，用于判断汇总表是否覆盖整个区间
+     * @param begin
+     * @param end
+     * @return
+     */
+    @Select("select count(*) from daily_business_stats where stat_date between #{begin} and #{end}")
+    int countDays(LocalDate begin, LocalDate end);
+
+    /**
+     * 查询已汇总的最后一天
+     * @return
+     */
+    @Select("select max(stat_date) from daily_business_stats")
+    LocalDate getLatestDate();
+
+    /**
+     * 删除日期区间内的商品销量
+     * @param begin
+     * @param end
+     */
+    void deleteDishSales(LocalDate begin, LocalDate end);
+
+    /**
+     * 批量插入每日商品销量
+     * @param salesList
+     */
+    void insertDishSales(List<DailyGoodsSalesDTO> salesList);
+
+    /**
+     * 统计日期区间内各商品的销量
+     * @param begin
+     * @param end
+     * @return
+     */
+    List<GoodsSalesDTO> sumDishSales(LocalDate begin, LocalDate end);
+}
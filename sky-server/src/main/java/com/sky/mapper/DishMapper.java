@@ -79,4 +79,18 @@ public interface DishMapper {
      * @return
      */
     Integer countByMap(Map map);
+
+    /**
+     * 查询菜品所属的分类id(去重)
+     * @param ids
+     * @return
+     */
+    List<Long> getCategoryIdsByIds(List<Long> ids);
+
+    /**
+     * 根据id集合批量查询菜品
+     * @param ids
+     * @return
+     */
+    List<Dish> getByIds(List<Long> ids);
 }
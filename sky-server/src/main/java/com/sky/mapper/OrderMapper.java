@@ -1,12 +1,17 @@
 package com.sky.mapper;
 
 import com.github.pagehelper.Page;
+import com.sky.dto.DailyGoodsSalesDTO;
 import com.sky.dto.GoodsSalesDTO;
+import com.sky.dto.OrderStatusCountDTO;
+import com.sky.dto.OrdersCursorQueryDTO;
 import com.sky.dto.OrdersPageQueryDTO;
+import com.sky.dto.ReportBucketDTO;
 import com.sky.entity.Orders;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.cursor.Cursor;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -35,6 +40,31 @@ public interface OrderMapper {
      */
     void update(Orders orders);
 
+    /**
+     * 仅当订单处于指定状态时修改订单信息（状态机使用的条件更新）
+     * @param orders
+     * @param fromStatuses 允许的起始状态
+     * @return 影响的行数，0表示订单不存在或状态不满足条件
+     */
+    int updateByStatus(Orders orders, List<Integer> fromStatuses);
+
+    /**
+     * 根据id查询订单并加锁，事务提交前其他事务无法修改该订单（状态机确定起始状态使用）
+     * @param id
+     * @return 订单不存在时返回null
+     */
+    @Select("select * from orders where id = #{id} for update")
+    Orders getByIdForUpdate(Long id);
+
+    /**
+     * 批量修改处于指定状态的订单（状态机批量流转使用）
+     * @param orders 需要修改的字段
+     * @param ids 订单id集合
+     * @param fromStatus 允许的起始状态
+     * @return 影响的行数
+     */
+    int updateBatchByStatus(Orders orders, List<Long> ids, Integer fromStatus);
+
     /**
      * 模拟支付完成需要的接口
      * @param orderStatus
@@ -51,6 +81,22 @@ public interface OrderMapper {
      */
     Page<Orders> pageQuery(OrdersPageQueryDTO ordersPageQueryDTO);
 
+    /**
+     * 按订单搜索条件以游标方式逐行查询订单，用于导出
+     * @param ordersPageQueryDTO
+     * @return 需要在SqlSession关闭前读取完毕
+     */
+    Cursor<Orders> exportQuery(OrdersPageQueryDTO ordersPageQueryDTO);
+
+    /**
+     * 基于游标(下单时间, id)查询用户订单，按下单时间、id倒序，不统计总数
+     * 使用索引idx_user_order_time，见 db/migration/V1__orders_add_user_order_time_index.sql
+     * @param ordersCursorQueryDTO
+     * @param limit 查询条数
+     * @return
+     */
+    List<Orders> cursorQuery(OrdersCursorQueryDTO ordersCursorQueryDTO, int limit);
+
     /**
      * 根据id查询订单
      * @param id
@@ -66,6 +112,14 @@ public interface OrderMapper {
     @Select("select count(id) from orders where status = #{status}")
     Integer countStatus(Integer status);
 
+    /**
+     * 按订单状态分组统计订单数量，begin和end为空时统计全部订单
+     * @param begin
+     * @param end
+     * @return
+     */
+    List<OrderStatusCountDTO> countGroupByStatus(LocalDateTime begin, LocalDateTime end);
+
     /**
      * 根据订单状态和下单时间查询订单
      * @param status
@@ -75,6 +129,15 @@ public interface OrderMapper {
     @Select("select * from orders where status = #{status} and order_time < #{orderTime}")
     List<Orders> getByStatusAndOrderTimeLT(Integer status, LocalDateTime orderTime);
 
+    /**
+     * 根据订单状态和下单时间查询订单id
+     * @param status
+     * @param orderTime
+     * @return
+     */
+    @Select("select id from orders where status = #{status} and order_time < #{orderTime}")
+    List<Long> getIdsByStatusAndOrderTimeLT(Integer status, LocalDateTime orderTime);
+
     /**
      * 根据map集合动态条件统计营业额数据
      * @param map
@@ -89,6 +152,16 @@ public interface OrderMapper {
      */
     Integer countByMap(Map map);
 
+    /**
+     * 按时间段分组统计订单数、有效订单数和营业额
+     * @param begin 开始时间（包含）
+     * @param end 结束时间（不包含）
+     * @param granularity 统计粒度，ReportGranularity的名称
+     * @param status 有效订单的状态
+     * @return 只包含有订单的时间段
+     */
+    List<ReportBucketDTO> sumGroupByTime(LocalDateTime begin, LocalDateTime end, String granularity, Integer status);
+
     /**
      * 统计指定时间区间内的销量排名前10
      * @param begin
@@ -96,4 +169,12 @@ public interface OrderMapper {
      * @return
      */
     List<GoodsSalesDTO> getSalesTop10(LocalDateTime begin, LocalDateTime end);
+
+    /**
+     * 按天统计各商品的销量
+     * @param begin 开始时间（包含）
+     * @param end 结束时间（不包含）
+     * @return
+     */
+    List<DailyGoodsSalesDTO> getSalesGroupByDay(LocalDateTime begin, LocalDateTime end);
 }
@@ -37,4 +37,11 @@ public interface SetmealDishMapper {
      */
     @Select("select * from setmeal_dish where setmeal_id = #{setmealId}")
     List<SetmealDish> getBySetmealId(Long setmealId);
+
+    /**
+     * 根据套餐id集合批量查询套餐和菜品关系，一次加载多个套餐的菜品，避免按套餐逐个查询
+     * @param setmealIds
+     * @return
+     */
+    List<SetmealDish> getBySetmealIds(List<Long> setmealIds);
 }
@@ -73,7 +73,7 @@ public interface SetmealMapper {
      * @param setmealId
      * @return
      */
-    @Select("select sd.name, sd.copies, d.image, d.description " +
+    @Select("select sd.dish_id, sd.name, sd.copies, d.image, d.description " +
             "from setmeal_dish sd left join dish d on sd.dish_id = d.id " +
             "where sd.setmeal_id = #{setmealId}")
     List<DishItemVO> getDishItemBySetmealId(Long setmealId);
@@ -84,4 +84,11 @@ public interface SetmealMapper {
      * @return
      */
     Integer countByMap(Map map);
+
+    /**
+     * 查询套餐所属的分类id(去重)
+     * @param ids
+     * @return
+     */
+    List<Long> getCategoryIdsByIds(List<Long> ids);
 }
@@ -4,6 +4,7 @@ import com.sky.entity.ShoppingCart;
 import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
 import java.util.List;
@@ -18,6 +19,14 @@ public interface ShoppingCartMapper {
      */
     List<ShoppingCart> list(ShoppingCart shoppingCart);
 
+    /**
+     * 查询用户的购物车并加锁，事务提交前其他事务无法修改或新增该用户的购物车
+     * @param userId
+     * @return
+     */
+    @Select("select * from shopping_cart where user_id = #{userId} for update")
+    List<ShoppingCart> listForUpdate(Long userId);
+
     /**
      * 根据id修改购物车商品数量
      * @param cart
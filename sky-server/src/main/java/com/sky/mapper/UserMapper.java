@@ -1,9 +1,12 @@
 package com.sky.mapper;
 
+import com.sky.dto.ReportBucketDTO;
 import com.sky.entity.User;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
 @Mapper
@@ -30,6 +33,15 @@ public interface UserMapper {
      */
     Integer countByMap(Map map);
 
+    /**
+     * 按时间段分组统计新增用户数
+     * @param begin 开始时间（包含）
+     * @param end 结束时间（不包含）
+     * @param granularity 统计粒度，ReportGranularity的名称
+     * @return 只包含有新增用户的时间段
+     */
+    List<ReportBucketDTO> countGroupByTime(LocalDateTime begin, LocalDateTime end, String granularity);
+
     /**
      * 根据id查询用户
      * @param userId
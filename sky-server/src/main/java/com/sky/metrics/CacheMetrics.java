@@ -0,0 +1,42 @@
+package com.sky.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 缓存命中统计，指标sky.cache.gets
+ * cache标签为缓存名称，level标签为命中的层级(local 本地缓存，redis，in_flight 等待并发的加载)，未命中任何一级时result为miss
+ */
+@Component
+public class CacheMetrics {
+
+    private static final String METRIC_NAME = "sky.cache.gets";
+
+    public static final String LEVEL_LOCAL = "local";
+    public static final String LEVEL_REDIS = "redis";
+    //等待同一节点上正在进行的加载
+    public static final String LEVEL_IN_FLIGHT = "in_flight";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 缓存命中
+     *
+     * @param cacheName
+     * @param level 命中的层级
+     */
+    public void hit(String cacheName, String level) {
+        meterRegistry.counter(METRIC_NAME, "cache", cacheName, "level", level, "result", "hit").increment();
+    }
+
+    /**
+     * 所有层级都未命中，需要查询数据库
+     *
+     * @param cacheName
+     */
+    public void miss(String cacheName) {
+        meterRegistry.counter(METRIC_NAME, "cache", cacheName, "level", "none", "result", "miss").increment();
+    }
+}
@@ -0,0 +1,40 @@
+package com.sky.metrics;
+
+import com.sky.interceptor.JwtTokenCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * jwt令牌缓存指标
+ * jwt.token.cache.gets 按result标签(hit/miss)统计查询次数，jwt.token.cache.hit.ratio 为累计命中率，jwt.token.cache.size 为当前条数
+ */
+@Component
+public class JwtTokenCacheMetrics implements MeterBinder {
+
+    private static final String METRIC_PREFIX = "jwt.token.cache";
+
+    @Autowired
+    private JwtTokenCache jwtTokenCache;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder(METRIC_PREFIX + ".gets", jwtTokenCache, JwtTokenCache::getHitCount)
+                .tag("result", "hit")
+                .description("命中缓存、跳过验签的请求数")
+                .register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".gets", jwtTokenCache, JwtTokenCache::getMissCount)
+                .tag("result", "miss")
+                .description("未命中缓存、需要验签的请求数")
+                .register(registry);
+        Gauge.builder(METRIC_PREFIX + ".hit.ratio", jwtTokenCache, JwtTokenCache::getHitRate)
+                .description("jwt令牌缓存累计命中率")
+                .register(registry);
+        Gauge.builder(METRIC_PREFIX + ".size", jwtTokenCache, JwtTokenCache::size)
+                .description("jwt令牌缓存当前条数")
+                .register(registry);
+    }
+}
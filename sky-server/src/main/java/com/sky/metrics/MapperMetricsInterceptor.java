@@ -0,0 +1,159 @@
+package com.sky.metrics;
+
+import com.sky.properties.SqlMonitorProperties;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记录每条mapper语句的执行耗时，并做慢查询与N+1查询检测
+ * 指标mybatis.statement，statement标签为mapper方法全名，type标签为SELECT/INSERT/UPDATE/DELETE；
+ * com.sky.mapper下的语句另外记录返回行数(mybatis.statement.rows)，耗时超过阈值时连同绑定参数记录慢查询日志(执行失败的语句同样记录)，
+ * 并累计到当前请求的SqlMonitorContext中，由SqlMonitorFilter在请求结束时检查重复执行
+ */
+@Component
+@Slf4j
+@Intercepts({
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+        @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class})
+})
+public class MapperMetricsInterceptor implements Interceptor {
+
+    private static final String MAPPER_PACKAGE = "com.sky.mapper.";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private SqlMonitorProperties sqlMonitorProperties;
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object[] args = invocation.getArgs();
+        MappedStatement ms = (MappedStatement) args[0];
+        String statementId = ms.getId();
+        boolean monitored = statementId.startsWith(MAPPER_PACKAGE);
+        if (monitored) {
+            SqlMonitorContext context = SqlMonitorContext.current();
+            if (context != null) {
+                context.record(statementId);
+            }
+        }
+
+        long start = System.nanoTime();
+        String outcome = "success";
+        Object result = null;
+        try {
+            result = invocation.proceed();
+            return result;
+        } catch (Throwable e) {
+            outcome = "error";
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            Timer.builder("mybatis.statement")
+                    .tag("statement", statementId)
+                    .tag("type", ms.getSqlCommandType().name())
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(elapsed, TimeUnit.NANOSECONDS);
+            if (monitored) {
+                monitor(ms, args, result, outcome, TimeUnit.NANOSECONDS.toMillis(elapsed));
+            }
+        }
+    }
+
+    /**
+     * 记录返回行数，超过阈值时记录慢查询日志
+     *
+     * @param ms
+     * @param args
+     * @param result
+     * @param outcome
+     * @param elapsed 耗时(毫秒)
+     */
+    private void monitor(MappedStatement ms, Object[] args, Object result, String outcome, long elapsed) {
+        int rows = rowsOf(result);
+        if ("success".equals(outcome)) {
+            DistributionSummary.builder("mybatis.statement.rows")
+                    .tag("statement", ms.getId())
+                    .register(meterRegistry)
+                    .record(rows);
+        }
+
+        if (elapsed >= sqlMonitorProperties.getSlowThreshold()) {
+            BoundSql boundSql = args.length == 6 ? (BoundSql) args[5] : ms.getBoundSql(args[1]);
+            log.warn("慢查询：{}，耗时{}ms，结果{}，行数{}，sql：{}，参数：{}", ms.getId(), elapsed, outcome, rows,
+                    boundSql.getSql().replaceAll("\\s+", " "), parametersOf(ms, boundSql));
+        }
+    }
+
+    private int rowsOf(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Integer) {
+            return (Integer) result;
+        }
+        return result == null ? 0 : 1;
+    }
+
+    /**
+     * 按DefaultParameterHandler相同的规则取出绑定参数的值
+     *
+     * @param ms
+     * @param boundSql
+     * @return
+     */
+    private List<Object> parametersOf(MappedStatement ms, BoundSql boundSql) {
+        List<Object> values = new ArrayList<>();
+        List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+        if (parameterMappings == null || parameterMappings.isEmpty()) {
+            return values;
+        }
+
+        Object parameterObject = boundSql.getParameterObject();
+        Configuration configuration = ms.getConfiguration();
+        TypeHandlerRegistry typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+        MetaObject metaObject = parameterObject == null ? null : configuration.newMetaObject(parameterObject);
+        for (ParameterMapping parameterMapping : parameterMappings) {
+            if (parameterMapping.getMode() == ParameterMode.OUT) {
+                continue;
+            }
+            String property = parameterMapping.getProperty();
+            if (boundSql.hasAdditionalParameter(property)) {
+                values.add(boundSql.getAdditionalParameter(property));
+            } else if (parameterObject == null) {
+                values.add(null);
+            } else if (typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {
+                values.add(parameterObject);
+            } else {
+                values.add(metaObject.getValue(property));
+            }
+        }
+        return values;
+    }
+}
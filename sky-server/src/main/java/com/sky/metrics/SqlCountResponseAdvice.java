@@ -0,0 +1,36 @@
+package com.sky.metrics;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * 开发环境下在响应头X-Sql-Count中返回本次请求执行的sql语句数量
+ */
+@RestControllerAdvice
+@Profile("dev")
+public class SqlCountResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String HEADER_NAME = "X-Sql-Count";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        SqlMonitorContext context = SqlMonitorContext.current();
+        if (context != null) {
+            response.getHeaders().set(HEADER_NAME, String.valueOf(context.getTotal()));
+        }
+        return body;
+    }
+}
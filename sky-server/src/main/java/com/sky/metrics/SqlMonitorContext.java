@@ -0,0 +1,47 @@
+package com.sky.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 当前请求中执行的sql语句统计，由SqlMonitorFilter在请求开始时创建、结束时清除
+ * 不在请求线程中执行的语句(定时任务等)不统计
+ */
+public class SqlMonitorContext {
+
+    private static final ThreadLocal<SqlMonitorContext> CONTEXT = new ThreadLocal<>();
+
+    //语句id -> 执行次数
+    private final Map<String, Integer> counts = new HashMap<>();
+    private int total;
+
+    public static void begin() {
+        CONTEXT.set(new SqlMonitorContext());
+    }
+
+    public static SqlMonitorContext current() {
+        return CONTEXT.get();
+    }
+
+    public static void end() {
+        CONTEXT.remove();
+    }
+
+    /**
+     * 记录一次语句执行
+     *
+     * @param statementId
+     */
+    public void record(String statementId) {
+        counts.merge(statementId, 1, Integer::sum);
+        total++;
+    }
+
+    public Map<String, Integer> getCounts() {
+        return counts;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+}
@@ -0,0 +1,42 @@
+package com.sky.metrics;
+
+import com.sky.properties.SqlMonitorProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 为每个请求创建sql语句统计，请求结束时对执行次数超过阈值的语句告警(疑似N+1查询)
+ */
+@Component
+@Slf4j
+public class SqlMonitorFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private SqlMonitorProperties sqlMonitorProperties;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlMonitorContext.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            SqlMonitorContext context = SqlMonitorContext.current();
+            SqlMonitorContext.end();
+            context.getCounts().forEach((statementId, count) -> {
+                if (count > sqlMonitorProperties.getRepeatThreshold()) {
+                    log.warn("疑似N+1查询：{} {} 中 {} 执行了{}次", request.getMethod(), request.getRequestURI(),
+                            statementId, count);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.sky.metrics;
+
+import com.sky.websocket.WebSocketServer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * WebSocket当前连接数
+ */
+@Component
+public class WebSocketMetrics implements MeterBinder {
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("websocket.sessions.active", WebSocketServer::getSessionCount)
+                .description("当前WebSocket连接数")
+                .register(registry);
+    }
+}
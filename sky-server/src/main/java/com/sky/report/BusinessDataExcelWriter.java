@@ -0,0 +1,158 @@
+package com.sky.report;
+
+import com.sky.dto.ReportBucketDTO;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * 运营数据报表Excel生成
+ * 基于模板创建SXSSFWorkbook，明细行超过模板预留的行数后以流式写入，内存中只保留最近的少量行；
+ * 每日数据按段读取(每段一次汇总查询)，逐段写入，概览数据在写完明细后填入模板，因此任意长度的区间占用的内存都是固定的
+ */
+@Component
+public class BusinessDataExcelWriter {
+
+    private static final String TEMPLATE = "template/运营数据报表模板.xlsx";
+    private static final String SHEET = "sheet1";
+
+    //明细数据从第8行开始
+    private static final int DETAIL_FIRST_ROW = 7;
+
+    //内存中最多保留的明细行数，超过后写入临时文件
+    private static final int ROW_ACCESS_WINDOW = 100;
+
+    //每次读取的最大天数，同时也是进度回调的间隔
+    private static final int CHUNK_DAYS = 31;
+
+    @Autowired
+    private ReportAggregator reportAggregator;
+
+    /**
+     * 生成指定日期区间的运营数据报表
+     *
+     * @param begin
+     * @param end
+     * @param out
+     * @throws IOException
+     */
+    public void write(LocalDate begin, LocalDate end, OutputStream out) throws IOException {
+        write(begin, end, out, days -> {
+        });
+    }
+
+    /**
+     * 生成指定日期区间的运营数据报表，每写完一段明细回调一次进度
+     *
+     * @param begin
+     * @param end
+     * @param out
+     * @param progress 参数为已写入的天数
+     * @throws IOException
+     */
+    public void write(LocalDate begin, LocalDate end, OutputStream out, IntConsumer progress) throws IOException {
+        XSSFWorkbook template;
+        try (InputStream in = this.getClass().getClassLoader().getResourceAsStream(TEMPLATE)) {
+            template = new XSSFWorkbook(in);
+        }
+        SXSSFWorkbook excel = new SXSSFWorkbook(template, ROW_ACCESS_WINDOW);
+        try {
+            // 模板中已有的行只能通过XSSFSheet修改，新增的行通过SXSSFSheet流式写入
+            XSSFSheet templateSheet = template.getSheet(SHEET);
+            SXSSFSheet sheet = excel.getSheet(SHEET);
+            int templateLastRow = templateSheet.getLastRowNum();
+            XSSFRow styleRow = templateSheet.getRow(templateLastRow);
+
+            // 1.逐段读取每日数据，填充明细并累加概览数据
+            double turnover = 0;
+            int totalOrderCount = 0;
+            int validOrderCount = 0;
+            int newUsers = 0;
+            int rowIndex = DETAIL_FIRST_ROW;
+            for (LocalDate chunkBegin = begin; !chunkBegin.isAfter(end); chunkBegin = chunkBegin.plusDays(CHUNK_DAYS)) {
+                LocalDate chunkEnd = chunkBegin.plusDays(CHUNK_DAYS - 1);
+                if (chunkEnd.isAfter(end)) {
+                    chunkEnd = end;
+                }
+                for (Map.Entry<LocalDate, ReportBucketDTO> entry : reportAggregator.dailyStatistics(chunkBegin, chunkEnd).entrySet()) {
+                    ReportBucketDTO day = entry.getValue();
+                    Row row = rowIndex <= templateLastRow ? templateSheet.getRow(rowIndex) : createRow(sheet, rowIndex, styleRow);
+                    row.getCell(1).setCellValue(entry.getKey().toString());
+                    row.getCell(2).setCellValue(day.getTurnover());
+                    row.getCell(3).setCellValue(day.getValidOrderCount());
+                    row.getCell(4).setCellValue(completionRate(day.getValidOrderCount(), day.getOrderCount()));
+                    row.getCell(5).setCellValue(unitPrice(day.getTurnover(), day.getValidOrderCount()));
+                    row.getCell(6).setCellValue(day.getNewUserCount());
+                    rowIndex++;
+
+                    turnover += day.getTurnover();
+                    totalOrderCount += day.getOrderCount();
+                    validOrderCount += day.getValidOrderCount();
+                    newUsers += day.getNewUserCount();
+                }
+                progress.accept(rowIndex - DETAIL_FIRST_ROW);
+            }
+
+            // 2.填充第2行数据--时间
+            templateSheet.getRow(1).getCell(1).setCellValue("时间：" + begin + "到" + end);
+
+            // 3.填充概览数据，第4行和第5行
+            XSSFRow row = templateSheet.getRow(3);
+            row.getCell(2).setCellValue(turnover);
+            row.getCell(4).setCellValue(completionRate(validOrderCount, totalOrderCount));
+            row.getCell(6).setCellValue(newUsers);
+            row = templateSheet.getRow(4);
+            row.getCell(2).setCellValue(validOrderCount);
+            row.getCell(4).setCellValue(unitPrice(turnover, validOrderCount));
+
+            excel.write(out);
+            out.flush();
+        } finally {
+            // 删除流式写入产生的临时文件
+            excel.dispose();
+            excel.close();
+        }
+    }
+
+    /**
+     * 创建模板之外的明细行，单元格样式与模板最后一行相同
+     *
+     * @param sheet
+     * @param rowIndex
+     * @param styleRow
+     * @return
+     */
+    private Row createRow(SXSSFSheet sheet, int rowIndex, XSSFRow styleRow) {
+        Row row = sheet.createRow(rowIndex);
+        row.setHeight(styleRow.getHeight());
+        for (int i = styleRow.getFirstCellNum(); i < styleRow.getLastCellNum(); i++) {
+            Cell templateCell = styleRow.getCell(i);
+            Cell cell = row.createCell(i);
+            if (templateCell != null) {
+                cell.setCellStyle(templateCell.getCellStyle());
+            }
+        }
+        return row;
+    }
+
+    private double completionRate(int validOrderCount, int totalOrderCount) {
+        return totalOrderCount == 0 ? 0.0 : (double) validOrderCount / totalOrderCount;
+    }
+
+    private double unitPrice(double turnover, int validOrderCount) {
+        return validOrderCount == 0 ? 0.0 : turnover / validOrderCount;
+    }
+}
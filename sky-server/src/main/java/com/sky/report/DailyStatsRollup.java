@@ -0,0 +1,138 @@
+package com.sky.report;
+
+import com.sky.dto.DailyGoodsSalesDTO;
+import com.sky.dto.ReportBucketDTO;
+import com.sky.entity.DailyBusinessStats;
+import com.sky.entity.Orders;
+import com.sky.enumeration.ReportGranularity;
+import com.sky.mapper.DailyBusinessStatsMapper;
+import com.sky.mapper.OrderMapper;
+import com.sky.mapper.UserMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 每日营业数据汇总
+ * 将订单表和用户表按天汇总到daily_business_stats，将各商品销量按天汇总到daily_dish_sales，
+ * 报表读取历史日期时查询汇总表，不再扫描原始数据；汇总可以重复执行，结果覆盖已有数据
+ */
+@Component
+@Slf4j
+public class DailyStatsRollup {
+
+    //每次汇总的最大天数，区间较长时分段查询，避免单条语句扫描过多数据
+    private static final int CHUNK_DAYS = 31;
+
+    @Autowired
+    private DailyBusinessStatsMapper dailyBusinessStatsMapper;
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private UserMapper userMapper;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 汇总表不存在时创建
+     */
+    public void createTablesIfAbsent() {
+        dailyBusinessStatsMapper.createStatsTable();
+        dailyBusinessStatsMapper.createDishSalesTable();
+    }
+
+    /**
+     * 汇总日期区间内的营业数据，今天及以后的日期不汇总
+     *
+     * @param begin
+     * @param end
+     * @return 汇总的天数
+     */
+    public int rollup(LocalDate begin, LocalDate end) {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        if (end.isAfter(yesterday)) {
+            end = yesterday;
+        }
+        if (begin.isAfter(end)) {
+            return 0;
+        }
+
+        long start = System.currentTimeMillis();
+        int days = 0;
+        for (LocalDate chunkBegin = begin; !chunkBegin.isAfter(end); chunkBegin = chunkBegin.plusDays(CHUNK_DAYS)) {
+            LocalDate chunkEnd = chunkBegin.plusDays(CHUNK_DAYS - 1);
+            if (chunkEnd.isAfter(end)) {
+                chunkEnd = end;
+            }
+            days += rollupChunk(chunkBegin, chunkEnd);
+        }
+        log.info("每日营业数据汇总完成：{}到{}，天数：{}，耗时：{}ms", begin, end, days, System.currentTimeMillis() - start);
+        return days;
+    }
+
+    private int rollupChunk(LocalDate begin, LocalDate end) {
+        LocalDateTime beginTime = LocalDateTime.of(begin, LocalTime.MIN);
+        LocalDateTime endTime = LocalDateTime.of(end.plusDays(1), LocalTime.MIN);
+
+        // 1.订单和新增用户各一次按天分组的查询
+        Map<LocalDate, ReportBucketDTO> orderRows = byDate(orderMapper.sumGroupByTime(beginTime, endTime,
+                ReportGranularity.DAY.name(), Orders.COMPLETED));
+        Map<LocalDate, ReportBucketDTO> userRows = byDate(userMapper.countGroupByTime(beginTime, endTime,
+                ReportGranularity.DAY.name()));
+
+        // 2.区间开始前的用户总量，逐天累加得到每天的用户总量
+        Map map = new HashMap();
+        map.put("end", beginTime);
+        Integer totalUser = userMapper.countByMap(map);
+        int total = totalUser == null ? 0 : totalUser;
+
+        LocalDateTime now = LocalDateTime.now();
+        List<DailyBusinessStats> statsList = new ArrayList<>();
+        for (LocalDate date = begin; !date.isAfter(end); date = date.plusDays(1)) {
+            ReportBucketDTO orderRow = orderRows.getOrDefault(date, new ReportBucketDTO());
+            ReportBucketDTO userRow = userRows.getOrDefault(date, new ReportBucketDTO());
+            int newUser = userRow.getNewUserCount() == null ? 0 : userRow.getNewUserCount();
+            total += newUser;
+            statsList.add(DailyBusinessStats.builder()
+                    .statDate(date)
+                    .turnover(orderRow.getTurnover() == null ? BigDecimal.ZERO : BigDecimal.valueOf(orderRow.getTurnover()))
+                    .totalOrderCount(orderRow.getOrderCount() == null ? 0 : orderRow.getOrderCount())
+                    .validOrderCount(orderRow.getValidOrderCount() == null ? 0 : orderRow.getValidOrderCount())
+                    .newUserCount(newUser)
+                    .totalUserCount(total)
+                    .updateTime(now)
+                    .build());
+        }
+
+        // 3.各商品每天的销量
+        List<DailyGoodsSalesDTO> salesList = orderMapper.getSalesGroupByDay(beginTime, endTime);
+
+        // 4.营业数据和商品销量在同一事务中写入，报表不会读到只更新了一半的数据
+        transactionTemplate.executeWithoutResult(status -> {
+            dailyBusinessStatsMapper.upsertBatch(statsList);
+            dailyBusinessStatsMapper.deleteDishSales(begin, end);
+            if (!salesList.isEmpty()) {
+                dailyBusinessStatsMapper.insertDishSales(salesList);
+            }
+        });
+        return statsList.size();
+    }
+
+    private Map<LocalDate, ReportBucketDTO> byDate(List<ReportBucketDTO> rows) {
+        Map<LocalDate, ReportBucketDTO> result = new HashMap<>();
+        for (ReportBucketDTO row : rows) {
+            result.put(ReportAggregator.parseBucket(row.getBucket()).toLocalDate(), row);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,122 @@
+package com.sky.report;
+
+import com.sky.enumeration.ExportJobStatus;
+import com.sky.vo.ExportJobVO;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 异步导出任务
+ */
+@Getter
+public class ExportJob {
+
+    private final String id;
+    //相同参数的任务共用一个key，用于合并重复的导出请求
+    private final String key;
+    private final LocalDate begin;
+    private final LocalDate end;
+    private final String fileName;
+    private final Path file;
+    private final LocalDateTime createTime = LocalDateTime.now();
+
+    private volatile ExportJobStatus status = ExportJobStatus.PENDING;
+    private volatile int progress;
+    private volatile String message;
+    private volatile LocalDateTime finishTime;
+
+    //正在进行的下载数和最后一次开始下载的时间，清理过期文件时跳过仍在下载的任务
+    private int downloads;
+    private LocalDateTime lastDownloadTime;
+    private boolean expired;
+
+    public ExportJob(String id, String key, LocalDate begin, LocalDate end, String fileName, Path file) {
+        this.id = id;
+        this.key = key;
+        this.begin = begin;
+        this.end = end;
+        this.fileName = fileName;
+        this.file = file;
+    }
+
+    public void running() {
+        status = ExportJobStatus.RUNNING;
+    }
+
+    public void progress(int progress) {
+        this.progress = progress;
+    }
+
+    public void done() {
+        progress = 100;
+        finishTime = LocalDateTime.now();
+        status = ExportJobStatus.DONE;
+    }
+
+    public void failed(String message) {
+        this.message = message;
+        finishTime = LocalDateTime.now();
+        status = ExportJobStatus.FAILED;
+    }
+
+    /**
+     * 开始下载
+     *
+     * @return 任务已被清理时返回false
+     */
+    public synchronized boolean beginDownload() {
+        if (expired) {
+            return false;
+        }
+        downloads++;
+        lastDownloadTime = LocalDateTime.now();
+        return true;
+    }
+
+    /**
+     * 下载结束
+     */
+    public synchronized void endDownload() {
+        downloads--;
+    }
+
+    /**
+     * 任务已结束、没有正在进行的下载，且结束时间和最后一次开始下载的时间都早于expireTime时标记为已过期
+     * 标记后不能再开始下载
+     *
+     * @param expireTime
+     * @return 是否已过期
+     */
+    public synchronized boolean expireIfIdle(LocalDateTime expireTime) {
+        if (!isFinished() || downloads > 0 || !finishTime.isBefore(expireTime)
+                || (lastDownloadTime != null && !lastDownloadTime.isBefore(expireTime))) {
+            return false;
+        }
+        expired = true;
+        return true;
+    }
+
+    /**
+     * 是否已结束（完成或失败）
+     *
+     * @return
+     */
+    public boolean isFinished() {
+        return status.isFinished();
+    }
+
+    public ExportJobVO toVO() {
+        return ExportJobVO.builder()
+                .id(id)
+                .status(status)
+                .progress(progress)
+                .fileName(fileName)
+                .message(message)
+                .createTime(createTime)
+                .finishTime(finishTime)
+                .build();
+    }
+}
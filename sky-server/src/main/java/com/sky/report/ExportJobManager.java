@@ -0,0 +1,230 @@
+package com.sky.report;
+
+import com.sky.constant.MessageConstant;
+import com.sky.enumeration.ExportJobStatus;
+import com.sky.exception.ReportBusinessException;
+import com.sky.properties.ExportJobProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步导出任务管理
+ * 导出任务在有界线程池中执行，先写入临时文件，完成后改名为正式文件供下载；
+ * 相同日期区间的任务在执行中时直接返回已有任务，不包含今天的区间数据不再变化，完成后的文件在过期前也直接复用；
+ * 任务状态保存在当前节点内存中，文件超过保留时间后由ReportTask定时删除
+ */
+@Component
+@Slf4j
+public class ExportJobManager implements DisposableBean {
+
+    private static final String SUFFIX = ".xlsx";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    @Autowired
+    private BusinessDataExcelWriter businessDataExcelWriter;
+    @Autowired
+    private ExportJobProperties exportJobProperties;
+
+    //id -> 任务
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+    //任务参数 -> 任务，用于合并重复的导出请求
+    private final Map<String, ExportJob> jobsByKey = new ConcurrentHashMap<>();
+
+    private Path dir;
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        dir = Paths.get(exportJobProperties.getDir());
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(exportJobProperties.getPoolSize(), exportJobProperties.getPoolSize(),
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(exportJobProperties.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "report-export-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 创建运营数据报表导出任务，存在相同日期区间的可复用任务时直接返回
+     *
+     * @param begin
+     * @param end
+     * @return
+     */
+    public ExportJob submit(LocalDate begin, LocalDate end) {
+        String key = "business:" + begin + ":" + end;
+        boolean immutable = end.isBefore(LocalDate.now());
+        ExportJob[] created = new ExportJob[1];
+        ExportJob job = jobsByKey.compute(key, (k, existing) -> {
+            if (existing != null && (!existing.isFinished()
+                    || (immutable && existing.getStatus() == ExportJobStatus.DONE))) {
+                return existing;
+            }
+            String id = UUID.randomUUID().toString().replace("-", "");
+            created[0] = new ExportJob(id, k, begin, end, "运营数据报表_" + begin + "_" + end + SUFFIX,
+                    dir.resolve(id + SUFFIX));
+            return created[0];
+        });
+        if (created[0] == null) {
+            log.info("复用导出任务：{}，状态：{}", job.getId(), job.getStatus());
+            return job;
+        }
+
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            jobsByKey.remove(key, job);
+            throw new ReportBusinessException(MessageConstant.EXPORT_JOB_REJECTED);
+        }
+        log.info("创建导出任务：{}，{}到{}", job.getId(), begin, end);
+        return job;
+    }
+
+    /**
+     * 查询导出任务
+     *
+     * @param id
+     * @return
+     */
+    public ExportJob get(String id) {
+        ExportJob job = id == null ? null : jobs.get(id);
+        if (job == null) {
+            throw new ReportBusinessException(MessageConstant.EXPORT_JOB_NOT_FOUND);
+        }
+        return job;
+    }
+
+    /**
+     * 查询已完成的导出任务，用于下载文件
+     *
+     * @param id
+     * @return
+     */
+    public ExportJob getDone(String id) {
+        ExportJob job = get(id);
+        if (job.getStatus() != ExportJobStatus.DONE) {
+            throw new ReportBusinessException(MessageConstant.EXPORT_JOB_NOT_READY);
+        }
+        if (!Files.exists(job.getFile())) {
+            throw new ReportBusinessException(MessageConstant.EXPORT_JOB_NOT_FOUND);
+        }
+        return job;
+    }
+
+    /**
+     * 开始下载已完成的导出任务的文件，下载结束后需要调用ExportJob.endDownload
+     * 下载期间以及开始下载后的保留时间内，文件不会被清理
+     *
+     * @param id
+     * @return
+     */
+    public ExportJob beginDownload(String id) {
+        ExportJob job = getDone(id);
+        if (!job.beginDownload()) {
+            throw new ReportBusinessException(MessageConstant.EXPORT_JOB_NOT_FOUND);
+        }
+        return job;
+    }
+
+    /**
+     * 删除超过保留时间的任务和文件，包括重启前遗留的文件；正在下载的任务不删除
+     */
+    public void cleanExpired() {
+        LocalDateTime expireTime = LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(exportJobProperties.getFileTtl()));
+        int removed = 0;
+        for (ExportJob job : jobs.values()) {
+            if (job.expireIfIdle(expireTime)) {
+                jobs.remove(job.getId());
+                jobsByKey.remove(job.getKey(), job);
+                deleteQuietly(job.getFile());
+                removed++;
+            }
+        }
+
+        long expireMillis = System.currentTimeMillis() - exportJobProperties.getFileTtl();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                int index = name.indexOf('.');
+                String id = index < 0 ? name : name.substring(0, index);
+                if (!jobs.containsKey(id) && Files.getLastModifiedTime(file).toMillis() < expireMillis) {
+                    deleteQuietly(file);
+                    removed++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("清理导出文件失败：{}", dir, e);
+        }
+        if (removed > 0) {
+            log.info("清理过期导出任务和文件：{}个", removed);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private void run(ExportJob job) {
+        job.running();
+        long start = System.currentTimeMillis();
+        long totalDays = job.getEnd().toEpochDay() - job.getBegin().toEpochDay() + 1;
+        Path tmp = dir.resolve(job.getId() + SUFFIX + TMP_SUFFIX);
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                // 写入明细时最多到99%，文件生成并改名后才算完成
+                businessDataExcelWriter.write(job.getBegin(), job.getEnd(), out,
+                        days -> job.progress((int) (days * 99 / totalDays)));
+            }
+            Files.move(tmp, job.getFile(), StandardCopyOption.ATOMIC_MOVE);
+            job.done();
+            log.info("导出任务完成：{}，大小：{}字节，耗时：{}ms", job.getId(), Files.size(job.getFile()),
+                    System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("导出任务失败：{}", job.getId(), e);
+            deleteQuietly(tmp);
+            job.failed(e.getMessage());
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("删除导出文件失败：{}", file, e);
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.sky.report;
+
+import com.sky.constant.MessageConstant;
+import com.sky.dto.DailyGoodsSalesDTO;
+import com.sky.dto.GoodsSalesDTO;
+import com.sky.dto.ReportBucketDTO;
+import com.sky.entity.DailyBusinessStats;
+import com.sky.entity.Orders;
+import com.sky.enumeration.ReportGranularity;
+import com.sky.exception.ReportBusinessException;
+import com.sky.mapper.DailyBusinessStatsMapper;
+import com.sky.mapper.OrderMapper;
+import com.sky.mapper.UserMapper;
+import com.sky.properties.ReportRollupProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 报表统计
+ * 按小时统计时对原始表执行一次按时间段group by的查询；按天、周、月统计时，
+ * 历史日期读取每日汇总表(汇总表中缺少的日期查询原始表补齐)，今天的数据读取实时计数，再在内存中合并到各时间段；
+ * 没有数据的时间段补0，用户总量由区间开始前的用户数加上各时间段的新增用户数累加得到
+ */
+@Component
+public class ReportAggregator {
+
+    //单次统计最多返回的时间段数量，超过时需要选择更大的统计粒度
+    public static final int MAX_BUCKETS = 1000;
+
+    //mapper返回的时间段开始时间格式
+    private static final DateTimeFormatter BUCKET_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private UserMapper userMapper;
+    @Autowired
+    private DailyBusinessStatsMapper dailyBusinessStatsMapper;
+    @Autowired
+    private TodayBusinessCounter todayBusinessCounter;
+    @Autowired
+    private ReportRollupProperties reportRollupProperties;
+
+    /**
+     * 按时间段统计订单数、有效订单数和营业额
+     *
+     * @param begin
+     * @param end
+     * @param granularity
+     * @return key为时间段开始时间，按时间顺序排列，包含没有订单的时间段
+     */
+    public Map<LocalDateTime, ReportBucketDTO> orderStatistics(LocalDate begin, LocalDate end, ReportGranularity granularity) {
+        List<LocalDateTime> buckets = buckets(begin, end, granularity);
+        List<ReportBucketDTO> rows = granularity == ReportGranularity.HOUR
+                ? orderMapper.sumGroupByTime(beginTime(begin), endTime(end), granularity.name(), Orders.COMPLETED)
+                : mergeDays(dailyStatistics(begin, end), granularity);
+
+        Map<LocalDateTime, ReportBucketDTO> result = fill(buckets, rows);
+        for (ReportBucketDTO dto : result.values()) {
+            dto.setTurnover(dto.getTurnover() == null ? 0.0 : dto.getTurnover());
+            dto.setOrderCount(dto.getOrderCount() == null ? 0 : dto.getOrderCount());
+            dto.setValidOrderCount(dto.getValidOrderCount() == null ? 0 : dto.getValidOrderCount());
+        }
+        return result;
+    }
+
+    /**
+     * 按时间段统计新增用户数和用户总量
+     *
+     * @param begin
+     * @param end
+     * @param granularity
+     * @return key为时间段开始时间，按时间顺序排列，包含没有新增用户的时间段
+     */
+    public Map<LocalDateTime, ReportBucketDTO> userStatistics(LocalDate begin, LocalDate end, ReportGranularity granularity) {
+        List<LocalDateTime> buckets = buckets(begin, end, granularity);
+        List<ReportBucketDTO> rows = granularity == ReportGranularity.HOUR
+                ? userMapper.countGroupByTime(beginTime(begin), endTime(end), granularity.name())
+                : mergeDays(dailyStatistics(begin, end), granularity);
+
+        // 区间开始前的用户总量作为累加的初始值
+        int total = totalUserBefore(begin);
+
+        Map<LocalDateTime, ReportBucketDTO> result = fill(buckets, rows);
+        for (ReportBucketDTO dto : result.values()) {
+            int newUser = dto.getNewUserCount() == null ? 0 : dto.getNewUserCount();
+            total += newUser;
+            dto.setNewUserCount(newUser);
+            dto.setTotalUserCount(total);
+        }
+        return result;
+    }
+
+    /**
+     * 按天统计营业数据
+     *
+     * @param begin
+     * @param end
+     * @return key为日期，按时间顺序排列，包含区间内的每一天
+     */
+    public Map<LocalDate, ReportBucketDTO> dailyStatistics(LocalDate begin, LocalDate end) {
+        if (begin == null || end == null || begin.isAfter(end)) {
+            throw new ReportBusinessException(MessageConstant.REPORT_DATE_RANGE_ERROR);
+        }
+        LocalDate today = LocalDate.now();
+        Map<LocalDate, ReportBucketDTO> result = new LinkedHashMap<>();
+        for (LocalDate date = begin; !date.isAfter(end); date = date.plusDays(1)) {
+            result.put(date, null);
+        }
+
+        // 1.历史日期读取汇总表
+        LocalDate historyEnd = end.isBefore(today) ? end : today.minusDays(1);
+        if (!begin.isAfter(historyEnd)) {
+            if (reportRollupProperties.isEnabled()) {
+                for (DailyBusinessStats stats : dailyBusinessStatsMapper.list(begin, historyEnd)) {
+                    result.put(stats.getStatDate(), toBucket(stats));
+                }
+            }
+
+            // 2.汇总表中缺少的日期（尚未汇总或未启用汇总）查询原始表
+            List<LocalDate> missing = result.entrySet().stream()
+                    .filter(entry -> entry.getValue() == null && entry.getKey().isBefore(today))
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+            if (!missing.isEmpty()) {
+                LocalDate first = missing.get(0);
+                LocalDate last = missing.get(missing.size() - 1);
+                Map<LocalDate, ReportBucketDTO> rawRows = queryDays(first, last);
+                for (LocalDate date : missing) {
+                    result.put(date, rawRows.get(date));
+                }
+            }
+        }
+
+        // 3.今天读取实时计数
+        if (result.containsKey(today)) {
+            result.put(today, todayBusinessCounter.get());
+        }
+
+        // 4.没有数据的日期补0
+        for (Map.Entry<LocalDate, ReportBucketDTO> entry : result.entrySet()) {
+            ReportBucketDTO dto = entry.getValue() == null ? new ReportBucketDTO() : entry.getValue();
+            dto.setBucket(BUCKET_FORMATTER.format(entry.getKey().atStartOfDay()));
+            dto.setTurnover(dto.getTurnover() == null ? 0.0 : dto.getTurnover());
+            dto.setOrderCount(dto.getOrderCount() == null ? 0 : dto.getOrderCount());
+            dto.setValidOrderCount(dto.getValidOrderCount() == null ? 0 : dto.getValidOrderCount());
+            dto.setNewUserCount(dto.getNewUserCount() == null ? 0 : dto.getNewUserCount());
+            entry.setValue(dto);
+        }
+        return result;
+    }
+
+    /**
+     * 统计日期区间内的销量排名前10
+     * 汇总表覆盖全部历史日期时读取汇总表，今天的销量查询原始表后合并；否则直接查询原始表
+     *
+     * @param begin
+     * @param end
+     * @return
+     */
+    public List<GoodsSalesDTO> salesTop10(LocalDate begin, LocalDate end) {
+        LocalDate today = LocalDate.now();
+        LocalDate historyEnd = end.isBefore(today) ? end : today.minusDays(1);
+        boolean rolledUp = reportRollupProperties.isEnabled() && (begin.isAfter(historyEnd)
+                || dailyBusinessStatsMapper.countDays(begin, historyEnd) == historyEnd.toEpochDay() - begin.toEpochDay() + 1);
+        if (!rolledUp) {
+            return orderMapper.getSalesTop10(beginTime(begin), endTime(end));
+        }
+
+        Map<String, Integer> sales = new HashMap<>();
+        if (!begin.isAfter(historyEnd)) {
+            for (GoodsSalesDTO dto : dailyBusinessStatsMapper.sumDishSales(begin, historyEnd)) {
+                sales.merge(dto.getName(), dto.getNumber(), Integer::sum);
+            }
+        }
+        if (!end.isBefore(today) && !begin.isAfter(today)) {
+            for (DailyGoodsSalesDTO dto : orderMapper.getSalesGroupByDay(beginTime(today), endTime(today))) {
+                sales.merge(dto.getName(), dto.getNumber(), Integer::sum);
+            }
+        }
+        return sales.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder()))
+                .limit(10)
+                .map(entry -> new GoodsSalesDTO(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 计算区间内所有时间段的开始时间
+     *
+     * @param begin
+     * @param end
+     * @param granularity
+     * @return
+     */
+    public List<LocalDateTime> buckets(LocalDate begin, LocalDate end, ReportGranularity granularity) {
+        if (begin == null || end == null || begin.isAfter(end)) {
+            throw new ReportBusinessException(MessageConstant.REPORT_DATE_RANGE_ERROR);
+        }
+        LocalDateTime endTime = endTime(end);
+        List<LocalDateTime> buckets = new ArrayList<>();
+        for (LocalDateTime bucket = granularity.truncate(beginTime(begin)); bucket.isBefore(endTime);
+             bucket = granularity.next(bucket)) {
+            if (buckets.size() >= MAX_BUCKETS) {
+                throw new ReportBusinessException(MessageConstant.REPORT_TOO_MANY_POINTS);
+            }
+            buckets.add(bucket);
+        }
+        return buckets;
+    }
+
+    /**
+     * 解析mapper返回的时间段开始时间
+     *
+     * @param bucket
+     * @return
+     */
+    static LocalDateTime parseBucket(String bucket) {
+        return LocalDateTime.parse(bucket, BUCKET_FORMATTER);
+    }
+
+    /**
+     * 查询原始表，按天统计订单和新增用户
+     *
+     * @param begin
+     * @param end
+     * @return
+     */
+    private Map<LocalDate, ReportBucketDTO> queryDays(LocalDate begin, LocalDate end) {
+        String day = ReportGranularity.DAY.name();
+        Map<LocalDate, ReportBucketDTO> result = new HashMap<>();
+        for (ReportBucketDTO row : orderMapper.sumGroupByTime(beginTime(begin), endTime(end), day, Orders.COMPLETED)) {
+            result.put(parseBucket(row.getBucket()).toLocalDate(), row);
+        }
+        for (ReportBucketDTO row : userMapper.countGroupByTime(beginTime(begin), endTime(end), day)) {
+            result.computeIfAbsent(parseBucket(row.getBucket()).toLocalDate(), date -> new ReportBucketDTO())
+                    .setNewUserCount(row.getNewUserCount());
+        }
+        return result;
+    }
+
+    /**
+     * 将每天的数据合并到所在的时间段
+     *
+     * @param days
+     * @param granularity
+     * @return
+     */
+    private List<ReportBucketDTO> mergeDays(Map<LocalDate, ReportBucketDTO> days, ReportGranularity granularity) {
+        Map<LocalDateTime, ReportBucketDTO> merged = new LinkedHashMap<>();
+        for (Map.Entry<LocalDate, ReportBucketDTO> entry : days.entrySet()) {
+            LocalDateTime bucket = granularity.truncate(entry.getKey().atStartOfDay());
+            ReportBucketDTO day = entry.getValue();
+            ReportBucketDTO dto = merged.computeIfAbsent(bucket, key -> ReportBucketDTO.builder()
+                    .bucket(BUCKET_FORMATTER.format(key))
+                    .turnover(0.0).orderCount(0).validOrderCount(0).newUserCount(0)
+                    .build());
+            dto.setTurnover(dto.getTurnover() + day.getTurnover());
+            dto.setOrderCount(dto.getOrderCount() + day.getOrderCount());
+            dto.setValidOrderCount(dto.getValidOrderCount() + day.getValidOrderCount());
+            dto.setNewUserCount(dto.getNewUserCount() + day.getNewUserCount());
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    /**
+     * 区间开始前的用户总量，优先读取前一天的汇总数据
+     *
+     * @param begin
+     * @return
+     */
+    private int totalUserBefore(LocalDate begin) {
+        LocalDate previous = begin.minusDays(1);
+        if (reportRollupProperties.isEnabled() && previous.isBefore(LocalDate.now())) {
+            List<DailyBusinessStats> list = dailyBusinessStatsMapper.list(previous, previous);
+            if (!list.isEmpty()) {
+                return list.get(0).getTotalUserCount();
+            }
+        }
+        Map map = new HashMap();
+        map.put("end", beginTime(begin));
+        Integer totalUser = userMapper.countByMap(map);
+        return totalUser == null ? 0 : totalUser;
+    }
+
+    private ReportBucketDTO toBucket(DailyBusinessStats stats) {
+        return ReportBucketDTO.builder()
+                .turnover(stats.getTurnover() == null ? 0.0 : stats.getTurnover().doubleValue())
+                .orderCount(stats.getTotalOrderCount())
+                .validOrderCount(stats.getValidOrderCount())
+                .newUserCount(stats.getNewUserCount())
+                .totalUserCount(stats.getTotalUserCount())
+                .build();
+    }
+
+    /**
+     * 将查询结果按时间段放入有序map，没有数据的时间段补一个空对象
+     *
+     * @param buckets
+     * @param rows
+     * @return
+     */
+    private Map<LocalDateTime, ReportBucketDTO> fill(List<LocalDateTime> buckets, List<ReportBucketDTO> rows) {
+        Map<LocalDateTime, ReportBucketDTO> result = new LinkedHashMap<>();
+        for (LocalDateTime bucket : buckets) {
+            result.put(bucket, ReportBucketDTO.builder().bucket(BUCKET_FORMATTER.format(bucket)).build());
+        }
+        for (ReportBucketDTO row : rows) {
+            LocalDateTime bucket = parseBucket(row.getBucket());
+            if (result.containsKey(bucket)) {
+                result.put(bucket, row);
+            }
+        }
+        return result;
+    }
+
+    private LocalDateTime beginTime(LocalDate begin) {
+        return LocalDateTime.of(begin, LocalTime.MIN);
+    }
+
+    // 结束日期当天的数据全部包含在内，查询条件为小于下一天0点
+    private LocalDateTime endTime(LocalDate end) {
+        return LocalDateTime.of(end.plusDays(1), LocalTime.MIN);
+    }
+}
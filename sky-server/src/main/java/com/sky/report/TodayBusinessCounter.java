@@ -0,0 +1,225 @@
+package com.sky.report;
+
+import com.sky.dto.ReportBucketDTO;
+import com.sky.entity.Orders;
+import com.sky.enumeration.ReportGranularity;
+import com.sky.mapper.OrderMapper;
+import com.sky.mapper.UserMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 今日营业数据实时计数
+ * 下单、订单完成、用户注册时增加计数，工作台和报表读取今日数据时不再扫描订单表和用户表；
+ * 计数存放在redis哈希 business_stats:日期 中，多个节点共享，营业额以分为单位保存；
+ * 哈希中的version字段在每次修改时加1，重建时只有读取数据库期间version未变化才写入，不会覆盖期间发生的增量；
+ * 只统计今天下单的订单，前一天下单、今天完成的订单由每日汇总任务重新计算
+ */
+@Component
+@Slf4j
+public class TodayBusinessCounter {
+
+    private static final String KEY_PREFIX = "business_stats:";
+    private static final String TURNOVER = "turnover";
+    private static final String TOTAL_ORDER_COUNT = "totalOrderCount";
+    private static final String VALID_ORDER_COUNT = "validOrderCount";
+    private static final String NEW_USER_COUNT = "newUserCount";
+    private static final String VERSION = "version";
+
+    // 计数只在当天使用，保留2天后自动删除
+    private static final long EXPIRE_DAYS = 2;
+
+    // 计数存在时才增加，不存在时等待下次读取时根据数据库完整重建
+    private static final DefaultRedisScript<Long> INCREMENT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+                    "redis.call('HINCRBY', KEYS[1], ARGV[1], ARGV[2]) " +
+                    "redis.call('HINCRBY', KEYS[1], '" + VERSION + "', 1) " +
+                    "return 1", Long.class);
+
+    // ARGV[1]为读取数据库前的version(计数不存在时为空串)，ARGV[2]为过期秒数，之后为字段和值
+    // version已变化说明读取数据库期间有新的增量，放弃写入，等待下次重建
+    private static final DefaultRedisScript<Long> REBUILD_SCRIPT = new DefaultRedisScript<>(
+            "local version = redis.call('HGET', KEYS[1], '" + VERSION + "') or '' " +
+                    "if version ~= ARGV[1] then return 0 end " +
+                    "for i = 3, #ARGV, 2 do " +
+                    "redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1]) " +
+                    "end " +
+                    "redis.call('HINCRBY', KEYS[1], '" + VERSION + "', 1) " +
+                    "redis.call('EXPIRE', KEYS[1], ARGV[2]) " +
+                    "return 1", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private UserMapper userMapper;
+
+    /**
+     * 新订单创建
+     *
+     * @param orderTime
+     */
+    public void onOrderCreated(LocalDateTime orderTime) {
+        afterCommit(() -> increment(orderTime, TOTAL_ORDER_COUNT, 1));
+    }
+
+    /**
+     * 订单完成，计入有效订单和营业额
+     *
+     * @param orders 需要包含下单时间和订单金额
+     */
+    public void onOrderCompleted(Orders orders) {
+        if (orders == null) {
+            return;
+        }
+        afterCommit(() -> {
+            increment(orders.getOrderTime(), VALID_ORDER_COUNT, 1);
+            increment(orders.getOrderTime(), TURNOVER, toCents(orders.getAmount()));
+        });
+    }
+
+    /**
+     * 新用户注册
+     *
+     * @param createTime
+     */
+    public void onUserCreated(LocalDateTime createTime) {
+        afterCommit(() -> increment(createTime, NEW_USER_COUNT, 1));
+    }
+
+    /**
+     * 获取今日营业数据，计数不存在时（当天第一次查询或redis数据丢失）先根据数据库重建
+     *
+     * @return
+     */
+    public ReportBucketDTO get() {
+        LocalDate today = LocalDate.now();
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(keyOf(today));
+        if (entries.isEmpty()) {
+            return rebuild(today);
+        }
+        return toBucket(entries);
+    }
+
+    private ReportBucketDTO toBucket(Map<Object, Object> entries) {
+        return ReportBucketDTO.builder()
+                .turnover(longValue(entries.get(TURNOVER)) / 100.0)
+                .orderCount((int) longValue(entries.get(TOTAL_ORDER_COUNT)))
+                .validOrderCount((int) longValue(entries.get(VALID_ORDER_COUNT)))
+                .newUserCount((int) longValue(entries.get(NEW_USER_COUNT)))
+                .build();
+    }
+
+    /**
+     * 根据数据库重建今日计数，并定时调用以修正事务回滚、节点宕机等原因造成的偏差
+     *
+     * @return
+     */
+    public ReportBucketDTO rebuild() {
+        return rebuild(LocalDate.now());
+    }
+
+    private ReportBucketDTO rebuild(LocalDate date) {
+        String key = keyOf(date);
+        Object version = stringRedisTemplate.opsForHash().get(key, VERSION);
+
+        LocalDateTime begin = LocalDateTime.of(date, LocalTime.MIN);
+        LocalDateTime end = LocalDateTime.of(date.plusDays(1), LocalTime.MIN);
+
+        List<ReportBucketDTO> orderRows = orderMapper.sumGroupByTime(begin, end, ReportGranularity.DAY.name(), Orders.COMPLETED);
+        List<ReportBucketDTO> userRows = userMapper.countGroupByTime(begin, end, ReportGranularity.DAY.name());
+        ReportBucketDTO orderRow = orderRows.isEmpty() ? new ReportBucketDTO() : orderRows.get(0);
+        ReportBucketDTO userRow = userRows.isEmpty() ? new ReportBucketDTO() : userRows.get(0);
+
+        long turnover = orderRow.getTurnover() == null ? 0 : toCents(BigDecimal.valueOf(orderRow.getTurnover()));
+        int totalOrderCount = orderRow.getOrderCount() == null ? 0 : orderRow.getOrderCount();
+        int validOrderCount = orderRow.getValidOrderCount() == null ? 0 : orderRow.getValidOrderCount();
+        int newUserCount = userRow.getNewUserCount() == null ? 0 : userRow.getNewUserCount();
+
+        List<String> args = new ArrayList<>();
+        args.add(version == null ? "" : version.toString());
+        args.add(String.valueOf(TimeUnit.DAYS.toSeconds(EXPIRE_DAYS)));
+        args.add(TURNOVER);
+        args.add(String.valueOf(turnover));
+        args.add(TOTAL_ORDER_COUNT);
+        args.add(String.valueOf(totalOrderCount));
+        args.add(VALID_ORDER_COUNT);
+        args.add(String.valueOf(validOrderCount));
+        args.add(NEW_USER_COUNT);
+        args.add(String.valueOf(newUserCount));
+        Long written = stringRedisTemplate.execute(REBUILD_SCRIPT, Collections.singletonList(key), args.toArray());
+        if (written == null || written == 0) {
+            // 读取数据库期间计数有变化(或已由其他节点重建)，保留redis中的计数
+            Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(key);
+            if (!entries.isEmpty()) {
+                log.debug("今日营业数据计数在重建期间发生变化，跳过本次重建");
+                return toBucket(entries);
+            }
+        } else {
+            log.debug("今日营业数据计数重建完成：{}", args.subList(2, args.size()));
+        }
+
+        return ReportBucketDTO.builder()
+                .turnover(turnover / 100.0)
+                .orderCount(totalOrderCount)
+                .validOrderCount(validOrderCount)
+                .newUserCount(newUserCount)
+                .build();
+    }
+
+    private void increment(LocalDateTime time, String field, long delta) {
+        // 只维护今天的计数，历史日期由每日汇总任务计算
+        if (time == null || !LocalDate.now().equals(time.toLocalDate())) {
+            return;
+        }
+        stringRedisTemplate.execute(INCREMENT_SCRIPT, Collections.singletonList(keyOf(time.toLocalDate())),
+                field, String.valueOf(delta));
+    }
+
+    /**
+     * 存在事务时在事务提交后再修改计数，避免回滚的数据被计入
+     *
+     * @param action
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private long toCents(BigDecimal amount) {
+        return amount == null ? 0 : amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    private long longValue(Object value) {
+        return value == null ? 0 : Long.parseLong(value.toString());
+    }
+
+    private String keyOf(LocalDate date) {
+        return KEY_PREFIX + date;
+    }
+}
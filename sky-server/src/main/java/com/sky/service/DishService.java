@@ -46,8 +46,9 @@ public interface DishService {
      * 菜品起售停售
      * @param status
      * @param id
+     * @return 停售时一起停售的套餐id，用于清理套餐缓存；起售时返回空集合
      */
-    void updateStatus(Integer status, Long id);
+    List<Long> updateStatus(Integer status, Long id);
 
     /**
      * 根据分类id查询菜品
@@ -62,4 +63,11 @@ public interface DishService {
      * @return
      */
     List<DishVO> listWithFlavor(Dish dish);
+
+    /**
+     * 查询菜品所属的分类id，用于精确清理缓存
+     * @param ids
+     * @return
+     */
+    List<Long> getCategoryIds(List<Long> ids);
 }
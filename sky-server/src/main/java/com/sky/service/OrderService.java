@@ -2,11 +2,15 @@ package com.sky.service;
 
 import com.sky.dto.*;
 import com.sky.result.PageResult;
+import com.sky.vo.OrderCursorPageVO;
 import com.sky.vo.OrderPaymentVO;
 import com.sky.vo.OrderStatisticsVO;
 import com.sky.vo.OrderSubmitVO;
 import com.sky.vo.OrderVO;
 
+import java.io.IOException;
+import java.io.OutputStream;
+
 public interface OrderService {
 
     /**
@@ -38,6 +42,13 @@ public interface OrderService {
      */
     PageResult pageQuery4User(int page, int pageSize, Integer status);
 
+    /**
+     * 用户端订单游标查询（滚动加载）
+     * @param ordersCursorQueryDTO
+     * @return
+     */
+    OrderCursorPageVO cursorQuery4User(OrdersCursorQueryDTO ordersCursorQueryDTO);
+
     /**
      * 查询订单详情
      * @param id
@@ -64,6 +75,14 @@ public interface OrderService {
      */
     PageResult conditionSearch(OrdersPageQueryDTO ordersPageQueryDTO);
 
+    /**
+     * 按订单搜索条件导出CSV
+     * @param ordersPageQueryDTO
+     * @param out
+     * @throws IOException
+     */
+    void exportCsv(OrdersPageQueryDTO ordersPageQueryDTO, OutputStream out) throws IOException;
+
     /**
      * 各个状态的订单数量统计
      * @return
@@ -1,10 +1,13 @@
 package com.sky.service;
 
+import com.sky.enumeration.ReportGranularity;
+import com.sky.vo.ExportJobVO;
 import com.sky.vo.OrderReportVO;
 import com.sky.vo.SalesTop10ReportVO;
 import com.sky.vo.TurnoverReportVO;
 import com.sky.vo.UserReportVO;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.time.LocalDate;
 
@@ -14,25 +17,28 @@ public interface ReportService {
      * 统计指定时间区间内的营业额数据
      * @param begin
      * @param end
+     * @param granularity 统计粒度
      * @return
      */
-    TurnoverReportVO getTurnoverStatistics(LocalDate begin, LocalDate end);
+    TurnoverReportVO getTurnoverStatistics(LocalDate begin, LocalDate end, ReportGranularity granularity);
 
     /**
      * 统计指定时间区间内的用户数据
      * @param begin
      * @param end
+     * @param granularity 统计粒度
      * @return
      */
-    UserReportVO getUserStatistics(LocalDate begin, LocalDate end);
+    UserReportVO getUserStatistics(LocalDate begin, LocalDate end, ReportGranularity granularity);
 
     /**
      * 统计指定时间区间内的订单数据
      * @param begin
      * @param end
+     * @param granularity 统计粒度
      * @return
      */
-    OrderReportVO getOrderStatistics(LocalDate begin, LocalDate end);
+    OrderReportVO getOrderStatistics(LocalDate begin, LocalDate end, ReportGranularity granularity);
 
     /**
      * 统计指定时间区间内的销量排名前10
@@ -42,9 +48,42 @@ public interface ReportService {
      */
     SalesTop10ReportVO getSalesTop10(LocalDate begin, LocalDate end);
 
+    /**
+     * 重新汇总指定日期区间的每日营业数据，用于回填历史数据或修正数据后重算
+     * @param begin
+     * @param end
+     * @return 汇总的天数
+     */
+    int rollup(LocalDate begin, LocalDate end);
+
     /**
      * 导出Excel运营数据报表
+     * @param begin 为空时导出最近30天
+     * @param end
+     * @param response
+     */
+    void exportBusinessData(LocalDate begin, LocalDate end, HttpServletResponse response);
+
+    /**
+     * 创建异步导出任务
+     * @param begin 为空时导出最近30天
+     * @param end
+     * @return
+     */
+    ExportJobVO createExportJob(LocalDate begin, LocalDate end);
+
+    /**
+     * 查询异步导出任务的状态和进度
+     * @param id
+     * @return
+     */
+    ExportJobVO getExportJob(String id);
+
+    /**
+     * 下载异步导出任务生成的文件
+     * @param id
+     * @param request
      * @param response
      */
-    void exportBusinessData(HttpServletResponse response);
+    void downloadExport(String id, HttpServletRequest request, HttpServletResponse response);
 }
@@ -8,6 +8,7 @@ import com.sky.vo.DishItemVO;
 import com.sky.vo.SetmealVO;
 
 import java.util.List;
+import java.util.Map;
 
 public interface SetmealService {
 
@@ -63,4 +64,18 @@ public interface SetmealService {
      * @return
      */
     List<DishItemVO> getDishItemById(Long id);
+
+    /**
+     * 批量查询多个套餐包含的菜品列表
+     * @param setmealIds
+     * @return 套餐id -> 菜品列表，没有菜品的套餐不在结果中
+     */
+    Map<Long, List<DishItemVO>> getDishItemsBySetmealIds(List<Long> setmealIds);
+
+    /**
+     * 查询套餐所属的分类id，用于精确清理缓存
+     * @param ids
+     * @return
+     */
+    List<Long> getCategoryIds(List<Long> ids);
 }
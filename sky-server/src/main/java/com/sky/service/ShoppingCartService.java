@@ -24,10 +24,24 @@ public interface ShoppingCartService {
      */
     void clean();
 
+    /**
+     * 取出并清空当前用户的购物车，用于下单
+     * 读取和清空是一个原子操作，期间新加入购物车的商品不会被清除；
+     * 在事务中调用时，事务回滚后购物车中的商品会恢复
+     * @return
+     */
+    List<ShoppingCart> drain();
+
 
     /**
      * 删除购物车中一个商品
      * @param shoppingCartDTO
      */
     void subShoppingCart(ShoppingCartDTO shoppingCartDTO);
+
+    /**
+     * 批量添加购物车商品
+     * @param shoppingCartList
+     */
+    void addBatch(List<ShoppingCart> shoppingCartList);
 }
@@ -16,6 +16,7 @@ import com.sky.mapper.SetmealDishMapper;
 import com.sky.mapper.SetmealMapper;
 import com.sky.result.PageResult;
 import com.sky.service.DishService;
+import com.sky.utils.BatchLoadUtil;
 import com.sky.vo.DishVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
@@ -24,7 +25,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -163,10 +167,11 @@ public class DishServiceImpl implements DishService {
      * 菜品起售停售
      * @param status
      * @param id
+     * @return 停售时一起停售的套餐id
      */
     @Transactional
     @Override
-    public void updateStatus(Integer status, Long id) {
+    public List<Long> updateStatus(Integer status, Long id) {
         Dish dish = Dish.builder()
                 .id(id)
                 .status(status)
@@ -187,8 +192,10 @@ public class DishServiceImpl implements DishService {
                             .build();
                     setmealMapper.update(setmeal);
                 }
+                return setmealIds;
             }
         }
+        return Collections.emptyList();
     }
 
     /**
@@ -216,14 +223,19 @@ public class DishServiceImpl implements DishService {
         // 1.获取菜品数据
         List<Dish> dishList = dishMapper.list(dish);
 
-        // 2.封装到DishVO中
+        // 2.一次性查询所有菜品的口味数据，按菜品id分组
+        List<Long> dishIds = dishList.stream().map(Dish::getId).collect(Collectors.toList());
+        Map<Long, List<DishFlavor>> flavorMap =
+                BatchLoadUtil.loadGrouped(dishIds, dishFlavorMapper::getByDishIds, DishFlavor::getDishId);
+
+        // 3.封装到DishVO中
         List<DishVO> dishVOList = new ArrayList<>();
         for (Dish d : dishList) {
             DishVO dishVO = new DishVO();
             BeanUtils.copyProperties(d, dishVO);
 
-            // 根据菜品id查询对应的口味数据
-            List<DishFlavor> flavors = dishFlavorMapper.getByDishId(d.getId());
+            // 取出菜品对应的口味数据
+            List<DishFlavor> flavors = flavorMap.getOrDefault(d.getId(), new ArrayList<>());
 
             dishVO.setFlavors(flavors);
             dishVOList.add(dishVO);
@@ -231,4 +243,17 @@ public class DishServiceImpl implements DishService {
 
         return dishVOList;
     }
+
+    /**
+     * 查询菜品所属的分类id，用于精确清理缓存
+     * @param ids
+     * @return
+     */
+    @Override
+    public List<Long> getCategoryIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return dishMapper.getCategoryIdsByIds(ids);
+    }
 }
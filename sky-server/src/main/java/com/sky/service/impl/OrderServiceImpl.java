@@ -12,38 +12,81 @@ import com.sky.exception.AddressBookBusinessException;
 import com.sky.exception.OrderBusinessException;
 import com.sky.exception.ShoppingCartBusinessException;
 import com.sky.mapper.*;
+import com.sky.report.TodayBusinessCounter;
 import com.sky.result.PageResult;
 import com.sky.service.OrderService;
+import com.sky.service.ShoppingCartService;
+import com.sky.statemachine.OrderEvent;
+import com.sky.statemachine.OrderStateMachine;
+import com.sky.statemachine.OrderStatusCounter;
+import com.sky.statemachine.OrderTimeoutQueue;
+import com.sky.utils.BatchLoadUtil;
+import com.sky.utils.OrderNumberGenerator;
 import com.sky.utils.WeChatPayUtil;
+import com.sky.vo.OrderCursorPageVO;
 import com.sky.vo.OrderPaymentVO;
 import com.sky.vo.OrderStatisticsVO;
 import com.sky.vo.OrderSubmitVO;
 import com.sky.vo.OrderVO;
 import com.sky.websocket.WebSocketServer;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class OrderServiceImpl implements OrderService {
 
+    //用户端订单游标查询每次加载的默认订单数和最大订单数
+    private static final int DEFAULT_CURSOR_PAGE_SIZE = 10;
+    private static final int MAX_CURSOR_PAGE_SIZE = 50;
+    //导出CSV时每批查询订单明细的订单数
+    private static final int EXPORT_CHUNK_SIZE = 500;
+    private static final Object[] CSV_HEADER = {"订单号", "订单状态", "支付状态", "下单时间", "结账时间",
+            "收货人", "手机号", "地址", "订单金额", "菜品", "备注"};
+    private static final DateTimeFormatter CSV_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Map<Integer, String> STATUS_NAMES = new HashMap<>();
+    private static final Map<Integer, String> PAY_STATUS_NAMES = new HashMap<>();
+
+    static {
+        STATUS_NAMES.put(Orders.PENDING_PAYMENT, "待付款");
+        STATUS_NAMES.put(Orders.TO_BE_CONFIRMED, "待接单");
+        STATUS_NAMES.put(Orders.CONFIRMED, "已接单");
+        STATUS_NAMES.put(Orders.DELIVERY_IN_PROGRESS, "派送中");
+        STATUS_NAMES.put(Orders.COMPLETED, "已完成");
+        STATUS_NAMES.put(Orders.CANCELLED, "已取消");
+        PAY_STATUS_NAMES.put(Orders.UN_PAID, "未支付");
+        PAY_STATUS_NAMES.put(Orders.PAID, "已支付");
+        PAY_STATUS_NAMES.put(Orders.REFUND, "退款");
+    }
+
     @Autowired
     private OrderMapper orderMapper;
     @Autowired
     private AddressBookMapper addressBookMapper;
     @Autowired
-    private ShoppingCartMapper shoppingCartMapper;
+    private ShoppingCartService shoppingCartService;
     @Autowired
     private OrderDetailMapper orderDetailMapper;
     @Autowired
@@ -52,6 +95,18 @@ public class OrderServiceImpl implements OrderService {
     private WeChatPayUtil weChatPayUtil;
     @Autowired
     private WebSocketServer webSocketServer;
+    @Autowired
+    private OrderNumberGenerator orderNumberGenerator;
+    @Autowired
+    private OrderStateMachine orderStateMachine;
+    @Autowired
+    private OrderStatusCounter orderStatusCounter;
+    @Autowired
+    private OrderTimeoutQueue orderTimeoutQueue;
+    @Autowired
+    private TodayBusinessCounter todayBusinessCounter;
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
 
     // 全局参数，用于模拟支付完成
     private Orders orders;
@@ -73,11 +128,9 @@ public class OrderServiceImpl implements OrderService {
             throw new AddressBookBusinessException(MessageConstant.ADDRESS_BOOK_IS_NULL);
         }
 
-        // 1.2.购物车数据为空
-        ShoppingCart shoppingCart = new ShoppingCart();
+        // 1.2.取出并清空购物车，购物车数据为空时不能下单；事务回滚时购物车会恢复
         Long userId = BaseContext.getCurrentId();
-        shoppingCart.setUserId(userId);
-        List<ShoppingCart> shoppingCartList = shoppingCartMapper.list(shoppingCart);
+        List<ShoppingCart> shoppingCartList = shoppingCartService.drain();
         if (shoppingCartList == null || shoppingCartList.size() == 0) {
             // 抛出业务异常
             throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_IS_NULL);
@@ -90,8 +143,8 @@ public class OrderServiceImpl implements OrderService {
         orders.setOrderTime(LocalDateTime.now());
         orders.setPayStatus(Orders.UN_PAID);
         orders.setStatus(Orders.PENDING_PAYMENT);
-        // 订单号使用System.currentTimeMillis()生成
-        orders.setNumber(String.valueOf(System.currentTimeMillis()));
+        // 订单号使用雪花算法生成，保证集群内唯一
+        orders.setNumber(orderNumberGenerator.nextNumber());
         orders.setAddress(addressBook.getDetail());
         orders.setPhone(addressBook.getPhone());
         orders.setConsignee(addressBook.getConsignee());
@@ -101,6 +154,11 @@ public class OrderServiceImpl implements OrderService {
         this.orders = orders;
 
         orderMapper.insert(orders);
+        orderStatusCounter.onCreated(orders.getStatus());
+        todayBusinessCounter.onOrderCreated(orders.getOrderTime());
+        // 登记支付截止时间，超时未支付由OrderTask自动取消
+        orderTimeoutQueue.register(orders.getId(),
+                System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(OrderTimeoutQueue.PAY_TIMEOUT_MINUTES));
 
         // 3.向订单明细表插入n条数据
         List<OrderDetail> orderDetailList = new ArrayList<>();
@@ -112,9 +170,7 @@ public class OrderServiceImpl implements OrderService {
         }
         orderDetailMapper.insertBatch(orderDetailList);
 
-        // 4.清空当前用户的购物车数据
-        shoppingCartMapper.deleteByUserId(userId);
-        // 5.封装返回结果
+        // 4.封装返回结果
         OrderSubmitVO orderSubmitVO = OrderSubmitVO.builder()
                 .id(orders.getId())
                 .orderTime(LocalDateTime.now())
@@ -153,10 +209,16 @@ public class OrderServiceImpl implements OrderService {
         jsonObject.put("code", "ORDERPAID");
         OrderPaymentVO vo = jsonObject.toJavaObject(OrderPaymentVO.class);
         vo.setPackageStr(jsonObject.getString("package"));
-        Integer OrderPaidStatus = Orders.PAID;//支付状态，已支付
-        Integer OrderStatus = Orders.TO_BE_CONFIRMED;  //订单状态，待接单
-        LocalDateTime check_out_time = LocalDateTime.now();//更新支付时间
-        orderMapper.updateStatus(OrderStatus, OrderPaidStatus, check_out_time, this.orders.getId());
+        // 订单状态：待付款 -> 待接单，同时更新支付状态和支付时间
+        Orders paidOrders = Orders.builder()
+                .id(this.orders.getId())
+                .payStatus(Orders.PAID)
+                .checkoutTime(LocalDateTime.now())
+                .build();
+        if (!orderStateMachine.fire(OrderEvent.PAY, paidOrders)) {
+            // 订单已支付过，不再重复推送来单提醒
+            return vo;
+        }
 
         //通过websocket向客户端浏览器推送消息 type orderId content
         Map map = new HashMap();
@@ -183,12 +245,12 @@ public class OrderServiceImpl implements OrderService {
         // 根据订单id更新订单的状态、支付方式、支付状态、结账时间
         Orders orders = Orders.builder()
                 .id(ordersDB.getId())
-                .status(Orders.TO_BE_CONFIRMED)
                 .payStatus(Orders.PAID)
                 .checkoutTime(LocalDateTime.now())
                 .build();
 
-        orderMapper.update(orders);
+        // 微信可能重复回调，订单不处于待付款状态时直接忽略
+        orderStateMachine.fire(OrderEvent.PAY, orders);
 
         /*//通过websocket向客户端浏览器推送消息 type orderId content
         Map map=new HashMap<>();
@@ -224,11 +286,11 @@ public class OrderServiceImpl implements OrderService {
 
         //查询出订单明细，并封装入orderVo进行响应
         if (page != null && page.getTotal() > 0) {
-            for (Orders orders : page) {
-                Long orderId = orders.getId();// 订单id
+            //一次性查询当前页所有订单的明细，按订单id分组
+            Map<Long, List<OrderDetail>> orderDetailMap = loadOrderDetails(page);
 
-                //查询订单明细
-                List<OrderDetail> orderDetails = orderDetailMapper.getByOrderId(orderId);
+            for (Orders orders : page) {
+                List<OrderDetail> orderDetails = orderDetailMap.getOrDefault(orders.getId(), new ArrayList<>());
 
                 OrderVO orderVO = new OrderVO();
                 BeanUtils.copyProperties(orders, orderVO);
@@ -240,6 +302,49 @@ public class OrderServiceImpl implements OrderService {
         return new PageResult(page.getTotal(), list);
     }
 
+    /**
+     * 用户端订单游标查询（滚动加载）
+     * 基于上一批最后一条订单的(下单时间, id)向后查询，不执行count，翻到多深都只扫描pageSize+1行
+     *
+     * @param ordersCursorQueryDTO
+     * @return
+     */
+    @Override
+    public OrderCursorPageVO cursorQuery4User(OrdersCursorQueryDTO ordersCursorQueryDTO) {
+        ordersCursorQueryDTO.setUserId(BaseContext.getCurrentId());
+        int pageSize = ordersCursorQueryDTO.getPageSize() > 0
+                ? Math.min(ordersCursorQueryDTO.getPageSize(), MAX_CURSOR_PAGE_SIZE) : DEFAULT_CURSOR_PAGE_SIZE;
+
+        // 1.多查询一条，用于判断是否还有更多订单
+        List<Orders> ordersList = orderMapper.cursorQuery(ordersCursorQueryDTO, pageSize + 1);
+        boolean hasMore = ordersList.size() > pageSize;
+        if (hasMore) {
+            ordersList = ordersList.subList(0, pageSize);
+        }
+
+        // 2.批量查询订单明细，封装入orderVO
+        Map<Long, List<OrderDetail>> orderDetailMap = loadOrderDetails(ordersList);
+        List<OrderVO> list = new ArrayList<>();
+        for (Orders orders : ordersList) {
+            OrderVO orderVO = new OrderVO();
+            BeanUtils.copyProperties(orders, orderVO);
+            orderVO.setOrderDetailList(orderDetailMap.getOrDefault(orders.getId(), new ArrayList<>()));
+            list.add(orderVO);
+        }
+
+        // 3.以本批最后一条订单作为下一次查询的游标
+        OrderCursorPageVO orderCursorPageVO = OrderCursorPageVO.builder()
+                .records(list)
+                .hasMore(hasMore)
+                .build();
+        if (!ordersList.isEmpty()) {
+            Orders last = ordersList.get(ordersList.size() - 1);
+            orderCursorPageVO.setNextOrderTime(last.getOrderTime());
+            orderCursorPageVO.setNextId(last.getId());
+        }
+        return orderCursorPageVO;
+    }
+
     /**
      * 查询订单详情
      *
@@ -269,39 +374,34 @@ public class OrderServiceImpl implements OrderService {
      * @param id
      */
     @Override
+    @Transactional
     public void userCancelById(Long id) {
-        // 1.根据id查询订单
-        Orders ordersDB = orderMapper.getById(id);
-        // 2.检验订单是否存在
+        // 订单状态 1待付款 2待接单 3已接单 4派送中 5已完成 6已取消，只有待付款和待接单的订单可以取消
+        // 1.锁定订单，确定订单当前状态
+        Orders ordersDB = orderMapper.getByIdForUpdate(id);
         if (ordersDB == null) {
             throw new OrderBusinessException(MessageConstant.ORDER_NOT_FOUND);
         }
 
-        // 订单状态 1待付款 2待接单 3已接单 4派送中 5已完成 6已取消
-        Integer status = ordersDB.getStatus();
+        // 2.创建orders对象用于修改订单状态，取消原因，取消时间
+        Orders orders = new Orders();
+        orders.setId(id);
+        orders.setCancelReason("用户取消");
+        orders.setCancelTime(LocalDateTime.now());
 
-        // 3.如果订单在已接单或派送中，无法取消
-        if (status > 2) {
+        // 3.订单处于待接单状态（已支付），取消的同时修改支付状态为退款
+        boolean refund = Orders.TO_BE_CONFIRMED.equals(ordersDB.getStatus());
+        if (refund) {
+            orders.setPayStatus(Orders.REFUND);
+        }
+        if (!orderStateMachine.fire(OrderEvent.USER_CANCEL, orders, ordersDB)) {
+            // 已接单、派送中等状态无法取消
             throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
         }
-
-        // 创建orders对象用于修改订单
-        Orders orders = new Orders();
-        orders.setId(ordersDB.getId());
-
-        // 4.如果订单处于待接单状态，需进行退款
-        if (status.equals(Orders.TO_BE_CONFIRMED)) {
+        if (refund) {
             // 调用微信支付退款接口进行退款
             log.info("退款成功");
-            // 修改订单支付状态为退款
-            orders.setPayStatus(Orders.REFUND);
         }
-
-        // 5.更新订单状态，取消原因，取消时间
-        orders.setStatus(Orders.CANCELLED);
-        orders.setCancelReason("用户取消");
-        orders.setCancelTime(LocalDateTime.now());
-        orderMapper.update(orders);
     }
 
     /**
@@ -328,8 +428,8 @@ public class OrderServiceImpl implements OrderService {
             return shoppingCart;
         }).collect(Collectors.toList());
 
-        // 4.将购物车对象批量添加到数据库
-        shoppingCartMapper.insertBatch(shoppingCartList);
+        // 4.将购物车对象批量添加到购物车
+        shoppingCartService.addBatch(shoppingCartList);
     }
 
     /**
@@ -351,6 +451,43 @@ public class OrderServiceImpl implements OrderService {
         return new PageResult(page.getTotal(), orderVOList);
     }
 
+    /**
+     * 按订单搜索条件导出CSV
+     * 通过MyBatis Cursor逐行读取订单，每累计EXPORT_CHUNK_SIZE条订单批量查询一次订单明细并写出，
+     * 内存中最多只保留一批订单，与导出的订单总数无关
+     *
+     * @param ordersPageQueryDTO
+     * @param out
+     * @throws IOException
+     */
+    @Override
+    public void exportCsv(OrdersPageQueryDTO ordersPageQueryDTO, OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        // 写入BOM，便于Excel识别UTF-8编码
+        writer.write('\uFEFF');
+        writeCsvLine(writer, CSV_HEADER);
+
+        int count = 0;
+        // 游标使用独立的SqlSession，在读取完毕前保持连接；订单明细通过连接池中的其他连接查询
+        try (SqlSession session = sqlSessionFactory.openSession();
+             Cursor<Orders> cursor = session.getMapper(OrderMapper.class).exportQuery(ordersPageQueryDTO)) {
+            List<Orders> chunk = new ArrayList<>(EXPORT_CHUNK_SIZE);
+            for (Orders orders : cursor) {
+                chunk.add(orders);
+                if (chunk.size() >= EXPORT_CHUNK_SIZE) {
+                    writeCsvChunk(writer, chunk);
+                    count += chunk.size();
+                    chunk.clear();
+                }
+            }
+            writeCsvChunk(writer, chunk);
+            count += chunk.size();
+        }
+        writer.flush();
+        log.info("导出订单CSV完成，订单数：{}，耗时：{}ms", count, System.currentTimeMillis() - start);
+    }
+
     /**
      * 各个状态的订单数量统计
      *
@@ -358,10 +495,10 @@ public class OrderServiceImpl implements OrderService {
      */
     @Override
     public OrderStatisticsVO statistics() {
-        // 1.根据状态，分别查询出待接单、带派送(已接单)、派送中的订单数量
-        Integer toBeConfirmed = orderMapper.countStatus(Orders.TO_BE_CONFIRMED); // 待接单
-        Integer confirmed = orderMapper.countStatus(Orders.CONFIRMED);
-        Integer deliveryInProgress = orderMapper.countStatus(Orders.DELIVERY_IN_PROGRESS);
+        // 1.从订单状态计数器中读取待接单、带派送(已接单)、派送中的订单数量
+        Integer toBeConfirmed = orderStatusCounter.get(Orders.TO_BE_CONFIRMED); // 待接单
+        Integer confirmed = orderStatusCounter.get(Orders.CONFIRMED);
+        Integer deliveryInProgress = orderStatusCounter.get(Orders.DELIVERY_IN_PROGRESS);
 
         // 2.将查询出的数量封装到OrderStatisticsVO中返回
         OrderStatisticsVO orderStatisticsVO = new OrderStatisticsVO();
@@ -378,12 +515,12 @@ public class OrderServiceImpl implements OrderService {
      */
     @Override
     public void confirm(OrdersConfirmDTO ordersConfirmDTO) {
+        // 只有处于"待接单"状态时可以执行接单操作
         Orders orders = Orders.builder()
                 .id(ordersConfirmDTO.getId())
-                .status(Orders.CONFIRMED)
                 .build();
 
-        orderMapper.update(orders);
+        orderStateMachine.fireOrThrow(OrderEvent.CONFIRM, orders);
     }
 
     /**
@@ -392,29 +529,16 @@ public class OrderServiceImpl implements OrderService {
      */
     @Override
     public void rejection(OrdersRejectionDTO ordersRejectionDTO) {
-        // 1.根据id查询订单
-        Long orderId = ordersRejectionDTO.getId();
-        Orders ordersDB = orderMapper.getById(orderId);
-
-        // 1.只有处于"待接单"状态时可以执行拒单操作
-        if(ordersDB == null || !ordersDB.getStatus().equals(Orders.TO_BE_CONFIRMED)){
-            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
-        }
-
-        // 2.如果用户已经完成支付，需要退款
-        if(ordersDB.getPayStatus() == Orders.PAID){
-            // 退款
-            log.info("退款");
-        }
-
-        // 3.修改订单状态、拒单原因、取消时间
+        // 1.修改订单状态、拒单原因、取消时间，只有处于"待接单"状态时可以执行拒单操作
         Orders orders = new Orders();
-        orders.setId(ordersDB.getId());
-        orders.setStatus(Orders.CANCELLED);
+        orders.setId(ordersRejectionDTO.getId());
         orders.setRejectionReason(ordersRejectionDTO.getRejectionReason());
         orders.setCancelTime(LocalDateTime.now());
 
-        orderMapper.update(orders);
+        orderStateMachine.fireOrThrow(OrderEvent.REJECT, orders);
+
+        // 2."待接单"状态的订单用户已经完成支付，需要退款
+        log.info("退款");
     }
 
     /**
@@ -422,26 +546,29 @@ public class OrderServiceImpl implements OrderService {
      * @param ordersCancelDTO
      */
     @Override
+    @Transactional
     public void adminCancel(OrdersCancelDTO ordersCancelDTO) {
-        // 1.根据id查询订单
-        Long orderId = ordersCancelDTO.getId();
-        Orders ordersDB = orderMapper.getById(orderId);
-
-        // 2.如果用户已经支付，需要退款
-        Integer payStatus = ordersDB.getPayStatus();
-        if(payStatus == Orders.PAID){
-            // 退款
-            log.info("退款");
+        // 1.锁定订单，确定订单当前状态
+        Orders ordersDB = orderMapper.getByIdForUpdate(ordersCancelDTO.getId());
+        if (ordersDB == null) {
+            throw new OrderBusinessException(MessageConstant.ORDER_NOT_FOUND);
         }
 
-        // 3.修改订单状态、取消原因、取消时间
+        // 2.修改订单状态、取消原因、取消时间
         Orders orders = new Orders();
-        orders.setId(ordersDB.getId());
-        orders.setStatus(Orders.CANCELLED);
+        orders.setId(ordersCancelDTO.getId());
         orders.setCancelReason(ordersCancelDTO.getCancelReason());
         orders.setCancelTime(LocalDateTime.now());
 
-        orderMapper.update(orders);
+        // 3.待接单、已接单、派送中的订单用户已经支付，取消后需要退款，待付款的订单直接取消
+        boolean refund = !Orders.PENDING_PAYMENT.equals(ordersDB.getStatus());
+        if (!orderStateMachine.fire(OrderEvent.ADMIN_CANCEL, orders, ordersDB)) {
+            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
+        }
+        if (refund) {
+            // 退款
+            log.info("退款");
+        }
     }
 
     /**
@@ -450,17 +577,10 @@ public class OrderServiceImpl implements OrderService {
      */
     @Override
     public void delivery(Long id) {
-        // 1.判断订单是否处于“待派送(已接单)”状态
-        Orders ordersDB = orderMapper.getById(id);
-        if(ordersDB == null || !ordersDB.getStatus().equals(Orders.CONFIRMED)){
-            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
-        }
-
-        // 2.修改订单状态
+        // 只有处于“待派送(已接单)”状态的订单可以派送
         Orders orders = new Orders();
-        orders.setId(ordersDB.getId());
-        orders.setStatus(Orders.DELIVERY_IN_PROGRESS);
-        orderMapper.update(orders);
+        orders.setId(id);
+        orderStateMachine.fireOrThrow(OrderEvent.DELIVER, orders);
     }
 
     /**
@@ -469,19 +589,11 @@ public class OrderServiceImpl implements OrderService {
      */
     @Override
     public void complete(Long id) {
-        // 1.判断订单是否处于“派送中”状态
-        Orders ordersDB = orderMapper.getById(id);
-        if(ordersDB == null || !ordersDB.getStatus().equals(Orders.DELIVERY_IN_PROGRESS)){
-            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
-        }
-
-        // 2.修改订单状态
+        // 只有处于“派送中”状态的订单可以完成，同时记录送达时间
         Orders orders = new Orders();
-        orders.setId(ordersDB.getId());
-        orders.setStatus(Orders.COMPLETED);
+        orders.setId(id);
         orders.setDeliveryTime(LocalDateTime.now());
-
-        orderMapper.update(orders);
+        orderStateMachine.fireOrThrow(OrderEvent.COMPLETE, orders);
     }
 
     /**
@@ -520,12 +632,16 @@ public class OrderServiceImpl implements OrderService {
 
         List<Orders> ordersList = page.getResult();
         if (!CollectionUtils.isEmpty(ordersList)) {
+            // 一次性查询当前页所有订单的明细，按订单id分组
+            Map<Long, List<OrderDetail>> orderDetailMap = loadOrderDetails(ordersList);
+
             for (Orders orders : ordersList) {
                 // 将共同字段复制到orderVO
                 OrderVO orderVO = new OrderVO();
                 BeanUtils.copyProperties(orders, orderVO);
                 // 获取订单菜品信息封装到orderVO中
-                String orderDishes = getOrderDishesStr(orders);
+                List<OrderDetail> orderDetailList = orderDetailMap.getOrDefault(orders.getId(), new ArrayList<>());
+                String orderDishes = getOrderDishesStr(orderDetailList);
                 orderVO.setOrderDishes(orderDishes);
 
                 orderVOList.add(orderVO);
@@ -535,22 +651,91 @@ public class OrderServiceImpl implements OrderService {
     }
 
     /**
-     * 根据订单id获取菜品信息字符串
+     * 批量查询订单明细，按订单id分组
+     *
+     * @param ordersList
+     * @return
+     */
+    private Map<Long, List<OrderDetail>> loadOrderDetails(List<Orders> ordersList) {
+        List<Long> orderIds = ordersList.stream().map(Orders::getId).collect(Collectors.toList());
+        return BatchLoadUtil.loadGrouped(orderIds, orderDetailMapper::getByOrderIds, OrderDetail::getOrderId);
+    }
+
+    /**
+     * 批量查询一批订单的明细，写出CSV行后刷新到客户端
+     *
+     * @param writer
+     * @param chunk
+     * @throws IOException
+     */
+    private void writeCsvChunk(Writer writer, List<Orders> chunk) throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Map<Long, List<OrderDetail>> orderDetailMap = loadOrderDetails(chunk);
+        for (Orders orders : chunk) {
+            writeCsvLine(writer, new Object[]{
+                    orders.getNumber(),
+                    STATUS_NAMES.get(orders.getStatus()),
+                    PAY_STATUS_NAMES.get(orders.getPayStatus()),
+                    orders.getOrderTime() == null ? null : CSV_TIME_FORMATTER.format(orders.getOrderTime()),
+                    orders.getCheckoutTime() == null ? null : CSV_TIME_FORMATTER.format(orders.getCheckoutTime()),
+                    orders.getConsignee(),
+                    orders.getPhone(),
+                    orders.getAddress(),
+                    orders.getAmount(),
+                    getOrderDishesStr(orderDetailMap.getOrDefault(orders.getId(), new ArrayList<>())),
+                    orders.getRemark()
+            });
+        }
+        writer.flush();
+    }
+
+    private void writeCsvLine(Writer writer, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(csvField(values[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * 转换为CSV字段，包含逗号、引号、换行时加引号转义
      *
-     * @param orders
+     * @param value
      * @return
      */
-    private String getOrderDishesStr(Orders orders) {
-        // 1.查询订单菜品详细信息
-        List<OrderDetail> orderDetailList = orderDetailMapper.getByOrderId(orders.getId());
+    private String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        // 以公式符号开头的文本前加单引号，避免在Excel中作为公式执行
+        if (value instanceof String && !text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            text = "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
 
-        // 2.将每一条订单菜品信息拼接成字符串（格式：宫保鸡丁*3；）
+    /**
+     * 根据订单明细获取菜品信息字符串
+     *
+     * @param orderDetailList
+     * @return
+     */
+    private String getOrderDishesStr(List<OrderDetail> orderDetailList) {
+        // 1.将每一条订单菜品信息拼接成字符串（格式：宫保鸡丁*3；）
         List<String> orderDishList = orderDetailList.stream().map(orderDetail -> {
             String orderDish = orderDetail.getName() + "*" + orderDetail.getNumber() + ";";
             return orderDish;
         }).collect(Collectors.toList());
 
-        // 3.将该订单对应的所有菜品信息拼接返回
+        // 2.将该订单对应的所有菜品信息拼接返回
         return String.join("", orderDishList);
     }
 }
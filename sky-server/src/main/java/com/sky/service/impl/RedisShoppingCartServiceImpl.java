@@ -0,0 +1,375 @@
+package com.sky.service.impl;
+
+import com.alibaba.fastjson.JSON;
+import com.sky.context.BaseContext;
+import com.sky.dto.ShoppingCartDTO;
+import com.sky.entity.Dish;
+import com.sky.entity.Setmeal;
+import com.sky.entity.ShoppingCart;
+import com.sky.mapper.DishMapper;
+import com.sky.mapper.SetmealMapper;
+import com.sky.mapper.ShoppingCartMapper;
+import com.sky.properties.ShoppingCartProperties;
+import com.sky.service.ShoppingCartService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 购物车服务（Redis存储）
+ * 每个用户的购物车存放在两个redis哈希中，field为 菜品id+口味 或 套餐id：
+ * shopping_cart:number:{userId} 存放商品数量，通过HINCRBY原子增减
+ * shopping_cart:item:{userId}   存放商品信息(名称、图片、单价)的JSON
+ * 发生变更的用户id记录到 shopping_cart:dirty 集合中，由ShoppingCartTask异步回写到shopping_cart表；
+ * 取出待回写用户时同时写入 shopping_cart:flushing:{userId} 标记，回写事务提交后才删除，
+ * 回写期间数据库中还是旧购物车，此时不从数据库加载；
+ * 数据库中购物车为空时写入 shopping_cart:empty:{userId} 标记，过期前不再重复查询数据库
+ * 下单时通过lua脚本一次性取出并删除购物车，事务回滚后再放回redis
+ */
+@Service
+@ConditionalOnProperty(prefix = "sky.shopping-cart", name = "storage", havingValue = "redis")
+@Slf4j
+public class RedisShoppingCartServiceImpl implements ShoppingCartService {
+
+    private static final String NUMBER_KEY_PREFIX = "shopping_cart:number:";
+    private static final String ITEM_KEY_PREFIX = "shopping_cart:item:";
+    private static final String DIRTY_KEY = "shopping_cart:dirty";
+    private static final String FLUSHING_KEY_PREFIX = "shopping_cart:flushing:";
+    private static final String EMPTY_KEY_PREFIX = "shopping_cart:empty:";
+
+    // 取出一个待回写的用户，同时标记为回写中，保证待回写和回写中两个标记之间没有间隙
+    private static final DefaultRedisScript<String> POP_DIRTY_SCRIPT = new DefaultRedisScript<>(
+            "local userId = redis.call('SPOP', KEYS[1]) " +
+                    "if not userId then return false end " +
+                    "redis.call('SET', ARGV[1] .. userId, '1', 'PX', ARGV[2]) " +
+                    "return userId", String.class);
+
+    // 数量减1，减到0时同时删除数量和商品信息，保证两个哈希一致
+    private static final DefaultRedisScript<Long> SUB_SCRIPT = new DefaultRedisScript<>(
+            "local n = redis.call('HINCRBY', KEYS[1], ARGV[1], -1) " +
+                    "if n <= 0 then " +
+                    "redis.call('HDEL', KEYS[1], ARGV[1]) " +
+                    "redis.call('HDEL', KEYS[2], ARGV[1]) " +
+                    "end " +
+                    "return n", Long.class);
+
+    // 取出并删除购物车，返回 数量,商品信息,数量,商品信息...；同时标记待回写，避免清空后又从数据库加载旧购物车
+    private static final DefaultRedisScript<List> DRAIN_SCRIPT = new DefaultRedisScript<>(
+            "local numbers = redis.call('HGETALL', KEYS[1]) " +
+                    "local result = {} " +
+                    "for i = 1, #numbers, 2 do " +
+                    "local item = redis.call('HGET', KEYS[2], numbers[i]) " +
+                    "if item then " +
+                    "table.insert(result, numbers[i + 1]) " +
+                    "table.insert(result, item) " +
+                    "end " +
+                    "end " +
+                    "redis.call('DEL', KEYS[1], KEYS[2]) " +
+                    "redis.call('SADD', KEYS[3], ARGV[1]) " +
+                    "return result", List.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private ShoppingCartMapper shoppingCartMapper;
+    @Autowired
+    private DishMapper dishMapper;
+    @Autowired
+    private SetmealMapper setmealMapper;
+    @Autowired
+    private ShoppingCartProperties shoppingCartProperties;
+
+    /**
+     * 添加购物车
+     * @param shoppingCartDTO
+     */
+    @Override
+    public void addShoppingCart(ShoppingCartDTO shoppingCartDTO) {
+        Long userId = BaseContext.getCurrentId();
+        loadFromDbIfAbsent(userId);
+
+        ShoppingCart shoppingCart = new ShoppingCart();
+        BeanUtils.copyProperties(shoppingCartDTO, shoppingCart);
+        shoppingCart.setUserId(userId);
+
+        String field = fieldOf(shoppingCart);
+        HashOperations<String, String, String> hash = stringRedisTemplate.opsForHash();
+
+        // 1.购物车中还没有该商品时，先查询并写入商品信息
+        if (!hash.hasKey(itemKey(userId), field)) {
+            Long dishId = shoppingCartDTO.getDishId();
+            if (dishId != null) {
+                // 本次添加的是菜品
+                Dish dish = dishMapper.getById(dishId);
+                shoppingCart.setName(dish.getName());
+                shoppingCart.setImage(dish.getImage());
+                shoppingCart.setAmount(dish.getPrice());
+            } else {
+                // 本次添加的是套餐
+                Setmeal setmeal = setmealMapper.getById(shoppingCartDTO.getSetmealId());
+                shoppingCart.setName(setmeal.getName());
+                shoppingCart.setImage(setmeal.getImage());
+                shoppingCart.setAmount(setmeal.getPrice());
+            }
+            shoppingCart.setCreateTime(LocalDateTime.now());
+            hash.putIfAbsent(itemKey(userId), field, JSON.toJSONString(shoppingCart));
+        }
+
+        // 2.数量原子+1
+        hash.increment(numberKey(userId), field, 1);
+        markDirty(userId);
+    }
+
+    /**
+     * 查看购物车
+     * @return
+     */
+    @Override
+    public List<ShoppingCart> showShoppingCart() {
+        Long userId = BaseContext.getCurrentId();
+        loadFromDbIfAbsent(userId);
+        return listFromRedis(userId);
+    }
+
+    /**
+     * 清空购物车
+     */
+    @Override
+    public void clean() {
+        Long userId = BaseContext.getCurrentId();
+        stringRedisTemplate.delete(Arrays.asList(numberKey(userId), itemKey(userId)));
+        markDirty(userId);
+    }
+
+    /**
+     * 取出并清空购物车
+     * 事务回滚时将取出的商品加回购物车，与期间新加入的商品合并
+     * @return
+     */
+    @Override
+    public List<ShoppingCart> drain() {
+        Long userId = BaseContext.getCurrentId();
+        loadFromDbIfAbsent(userId);
+
+        List<String> values = stringRedisTemplate.execute(DRAIN_SCRIPT,
+                Arrays.asList(numberKey(userId), itemKey(userId), DIRTY_KEY), String.valueOf(userId));
+        List<ShoppingCart> list = new ArrayList<>();
+        if (values != null) {
+            for (int i = 0; i + 1 < values.size(); i += 2) {
+                ShoppingCart cart = JSON.parseObject(values.get(i + 1), ShoppingCart.class);
+                cart.setUserId(userId);
+                cart.setNumber(Integer.valueOf(values.get(i)));
+                list.add(cart);
+            }
+        }
+        list.sort(Comparator.comparing(ShoppingCart::getCreateTime, Comparator.nullsLast(Comparator.naturalOrder())));
+
+        if (!list.isEmpty() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        restore(userId, list);
+                    }
+                }
+            });
+        }
+        return list;
+    }
+
+    /**
+     * 删除购物车中一个商品
+     * @param shoppingCartDTO
+     */
+    @Override
+    public void subShoppingCart(ShoppingCartDTO shoppingCartDTO) {
+        Long userId = BaseContext.getCurrentId();
+        loadFromDbIfAbsent(userId);
+
+        ShoppingCart shoppingCart = new ShoppingCart();
+        BeanUtils.copyProperties(shoppingCartDTO, shoppingCart);
+
+        stringRedisTemplate.execute(SUB_SCRIPT,
+                Arrays.asList(numberKey(userId), itemKey(userId)), fieldOf(shoppingCart));
+        markDirty(userId);
+    }
+
+    /**
+     * 批量添加购物车商品
+     * @param shoppingCartList
+     */
+    @Override
+    public void addBatch(List<ShoppingCart> shoppingCartList) {
+        if (shoppingCartList == null || shoppingCartList.isEmpty()) {
+            return;
+        }
+        Long userId = shoppingCartList.get(0).getUserId();
+        loadFromDbIfAbsent(userId);
+
+        HashOperations<String, String, String> hash = stringRedisTemplate.opsForHash();
+        for (ShoppingCart cart : shoppingCartList) {
+            String field = fieldOf(cart);
+            hash.putIfAbsent(itemKey(userId), field, JSON.toJSONString(cart));
+            hash.increment(numberKey(userId), field, cart.getNumber());
+        }
+        markDirty(userId);
+    }
+
+    /**
+     * 取出一个待回写数据库的用户id，并标记为回写中
+     * @return 没有待回写的用户时返回null
+     */
+    public Long popDirtyUser() {
+        String userId = stringRedisTemplate.execute(POP_DIRTY_SCRIPT, Collections.singletonList(DIRTY_KEY),
+                FLUSHING_KEY_PREFIX, String.valueOf(shoppingCartProperties.getFlushingTtl()));
+        return userId == null ? null : Long.valueOf(userId);
+    }
+
+    /**
+     * 将用户在redis中的购物车回写到shopping_cart表
+     * 事务结束后删除回写中标记，同时删除空购物车标记（数据库中的购物车只会通过回写改变）
+     * @param userId
+     */
+    @Transactional
+    public void flushToDb(Long userId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    // 回写失败，先重新标记为待回写再删除回写中标记
+                    markDirty(userId);
+                }
+                stringRedisTemplate.delete(Arrays.asList(flushingKey(userId), emptyKey(userId)));
+            }
+        });
+
+        List<ShoppingCart> list = listFromRedis(userId);
+        shoppingCartMapper.deleteByUserId(userId);
+        if (!list.isEmpty()) {
+            shoppingCartMapper.insertBatch(list);
+        }
+    }
+
+    /**
+     * 重新标记为待回写，用于回写失败时重试
+     * @param userId
+     */
+    public void markDirty(Long userId) {
+        stringRedisTemplate.opsForSet().add(DIRTY_KEY, String.valueOf(userId));
+    }
+
+    /**
+     * 将下单失败的商品加回购物车
+     * @param userId
+     * @param list
+     */
+    private void restore(Long userId, List<ShoppingCart> list) {
+        HashOperations<String, String, String> hash = stringRedisTemplate.opsForHash();
+        for (ShoppingCart cart : list) {
+            String field = fieldOf(cart);
+            hash.putIfAbsent(itemKey(userId), field, JSON.toJSONString(cart));
+            hash.increment(numberKey(userId), field, cart.getNumber());
+        }
+        markDirty(userId);
+        log.info("下单失败，恢复购物车，userId：{}，商品数：{}", userId, list.size());
+    }
+
+    /**
+     * 从redis中读取用户的购物车
+     * @param userId
+     * @return
+     */
+    private List<ShoppingCart> listFromRedis(Long userId) {
+        HashOperations<String, String, String> hash = stringRedisTemplate.opsForHash();
+        Map<String, String> numbers = hash.entries(numberKey(userId));
+        List<ShoppingCart> list = new ArrayList<>();
+        if (numbers.isEmpty()) {
+            return list;
+        }
+
+        List<String> fields = new ArrayList<>(numbers.keySet());
+        List<String> items = hash.multiGet(itemKey(userId), fields);
+        for (int i = 0; i < fields.size(); i++) {
+            String item = items.get(i);
+            if (item == null) {
+                continue;
+            }
+            ShoppingCart cart = JSON.parseObject(item, ShoppingCart.class);
+            cart.setUserId(userId);
+            cart.setNumber(Integer.valueOf(numbers.get(fields.get(i))));
+            list.add(cart);
+        }
+        list.sort(Comparator.comparing(ShoppingCart::getCreateTime, Comparator.nullsLast(Comparator.naturalOrder())));
+        return list;
+    }
+
+    /**
+     * redis中没有该用户的购物车、没有待回写或回写中的数据、也没有空购物车标记时，从数据库加载（例如redis重启后）
+     * @param userId
+     */
+    private void loadFromDbIfAbsent(Long userId) {
+        Long existing = stringRedisTemplate.countExistingKeys(
+                Arrays.asList(numberKey(userId), flushingKey(userId), emptyKey(userId)));
+        if ((existing != null && existing > 0)
+                || Boolean.TRUE.equals(stringRedisTemplate.opsForSet().isMember(DIRTY_KEY, String.valueOf(userId)))) {
+            return;
+        }
+
+        List<ShoppingCart> list = shoppingCartMapper.list(ShoppingCart.builder().userId(userId).build());
+        if (list == null || list.isEmpty()) {
+            // 数据库中也没有购物车，记录空标记，避免每次操作都查询数据库
+            stringRedisTemplate.opsForValue().set(emptyKey(userId), "1",
+                    shoppingCartProperties.getEmptyTtl(), TimeUnit.MILLISECONDS);
+            return;
+        }
+        HashOperations<String, String, String> hash = stringRedisTemplate.opsForHash();
+        for (ShoppingCart cart : list) {
+            String field = fieldOf(cart);
+            cart.setId(null);
+            hash.putIfAbsent(itemKey(userId), field, JSON.toJSONString(cart));
+            hash.putIfAbsent(numberKey(userId), field, String.valueOf(cart.getNumber()));
+        }
+        log.info("从数据库加载购物车到redis，userId：{}，商品数：{}", userId, list.size());
+    }
+
+    private String fieldOf(ShoppingCart cart) {
+        if (cart.getDishId() != null) {
+            String flavor = cart.getDishFlavor() == null ? "" : cart.getDishFlavor();
+            return "dish:" + cart.getDishId() + ":" + flavor;
+        }
+        return "setmeal:" + cart.getSetmealId();
+    }
+
+    private String numberKey(Long userId) {
+        return NUMBER_KEY_PREFIX + userId;
+    }
+
+    private String itemKey(Long userId) {
+        return ITEM_KEY_PREFIX + userId;
+    }
+
+    private String flushingKey(Long userId) {
+        return FLUSHING_KEY_PREFIX + userId;
+    }
+
+    private String emptyKey(Long userId) {
+        return EMPTY_KEY_PREFIX + userId;
+    }
+}
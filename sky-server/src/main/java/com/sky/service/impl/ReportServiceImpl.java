@@ -1,28 +1,34 @@
 package com.sky.service.impl;
 
+import com.sky.constant.MessageConstant;
 import com.sky.dto.GoodsSalesDTO;
-import com.sky.entity.Orders;
-import com.sky.mapper.OrderMapper;
-import com.sky.mapper.UserMapper;
+import com.sky.dto.ReportBucketDTO;
+import com.sky.enumeration.ReportGranularity;
+import com.sky.exception.ReportBusinessException;
+import com.sky.report.BusinessDataExcelWriter;
+import com.sky.report.DailyStatsRollup;
+import com.sky.report.ExportJob;
+import com.sky.report.ExportJobManager;
+import com.sky.report.ReportAggregator;
 import com.sky.service.ReportService;
-import com.sky.service.WorkspaceService;
 import com.sky.vo.*;
 import org.apache.commons.lang.StringUtils;
-import org.apache.poi.xssf.usermodel.XSSFRow;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -30,52 +36,41 @@ import java.util.stream.Collectors;
 @Service
 public class ReportServiceImpl implements ReportService {
 
+    // tomcat sendfile相关的请求属性
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Autowired
+    private ReportAggregator reportAggregator;
     @Autowired
-    private OrderMapper orderMapper;
+    private DailyStatsRollup dailyStatsRollup;
     @Autowired
-    private UserMapper userMapper;
+    private BusinessDataExcelWriter businessDataExcelWriter;
     @Autowired
-    private WorkspaceService workspaceService;
+    private ExportJobManager exportJobManager;
 
     /**
      * 统计指定时间区间内的营业额数据
      *
      * @param begin
      * @param end
+     * @param granularity
      * @return
      */
     @Override
-    public TurnoverReportVO getTurnoverStatistics(LocalDate begin, LocalDate end) {
-        // 1.创建集合用于存放从begin到end范围内每天的日期
-        List<LocalDate> dateList = new ArrayList<>();
-        dateList.add(begin);
-        while (!begin.equals(end)) {
-            // 计算开始日期后一天对应的日期加入集合
-            begin = begin.plusDays(1);
-            dateList.add(begin);
-        }
+    public TurnoverReportVO getTurnoverStatistics(LocalDate begin, LocalDate end, ReportGranularity granularity) {
+        // 1.一次查询按时间段统计营业额（状态为“已完成”的订单金额），没有订单的时间段为0
+        Map<LocalDateTime, ReportBucketDTO> buckets = reportAggregator.orderStatistics(begin, end, granularity);
 
-        // 2.创建集合用于存放每天的营业额
-        List<Double> turnoverList = new ArrayList<>();
-        for (LocalDate date : dateList) {
-            // 查询date日期对应的营业额数据（状态为“已完成”的订单金额）
-            // 将data日期的时分秒补全
-            LocalDateTime beginTime = LocalDateTime.of(date, LocalTime.MIN); // LocalTime.MIN相当于0点0分0秒
-            LocalDateTime endTime = LocalDateTime.of(date, LocalTime.MAX); // LocalTime.MAX无限接近下一日的0点0分0秒
-            // select sum(amount) from orders where order_time > ? and order_time < ? and status = 5
-            Map map = new HashMap();
-            map.put("begin", beginTime);
-            map.put("end", endTime);
-            map.put("status", Orders.COMPLETED);
-            Double turnover = orderMapper.sumByMap(map); // 获取当天营业额
-            // 处理当天营业额为0时返回null，将null转为0
-            turnover = turnover == null ? 0 : turnover;
-            turnoverList.add(turnover);
-        }
+        // 2.创建集合用于存放每个时间段的营业额
+        List<Double> turnoverList = buckets.values().stream()
+                .map(ReportBucketDTO::getTurnover).collect(Collectors.toList());
 
         // 3.创建TurnoverReportVO对象封装数据返回
         TurnoverReportVO turnoverReportVO = TurnoverReportVO.builder()
-                .dateList(StringUtils.join(dateList, ","))
+                .dateList(StringUtils.join(labels(buckets, granularity), ","))
                 .turnoverList(StringUtils.join(turnoverList, ","))
                 .build();
         return turnoverReportVO;
@@ -86,44 +81,24 @@ public class ReportServiceImpl implements ReportService {
      *
      * @param begin
      * @param end
+     * @param granularity
      * @return
      */
     @Override
-    public UserReportVO getUserStatistics(LocalDate begin, LocalDate end) {
-        // 1.创建集合用于存放从begin到end范围内每天的日期
-        List<LocalDate> dateList = new ArrayList<>();
-        dateList.add(begin);
-        while (!begin.equals(end)) {
-            begin = begin.plusDays(1);
-            dateList.add(begin);
-        }
-
-        // 2.创建集合用于存放每天新增的用户数量
-        List<Integer> newUserList = new ArrayList<>();
-        // select count(id) from user where create_time > ? and create_time < ?
-        // 3.创建集合用于存放每天总用户数量
-        List<Integer> totalUserList = new ArrayList<>();
-        // select count(id) from user where create_time < ?
-
-        // 4.封装条件查询，将查询结果存放到集合中
-        for (LocalDate date : dateList) {
-            LocalDateTime beginTime = LocalDateTime.of(date, LocalTime.MIN);
-            LocalDateTime endTime = LocalDateTime.of(date, LocalTime.MAX);
-            Map map = new HashMap();
-
-            map.put("end", endTime); // 先添加end参数 统计总用户
-            Integer totalUser = userMapper.countByMap(map);
-
-            map.put("begin", beginTime); // 再添加begin参数，统计每日新增的用户
-            Integer newUser = userMapper.countByMap(map);
-
-            totalUserList.add(totalUser);
-            newUserList.add(newUser);
-        }
-
-        // 5.创建UserReportVO对象封装数据返回
+    public UserReportVO getUserStatistics(LocalDate begin, LocalDate end, ReportGranularity granularity) {
+        // 1.按时间段统计新增用户数，用户总量由区间开始前的用户数累加得到
+        Map<LocalDateTime, ReportBucketDTO> buckets = reportAggregator.userStatistics(begin, end, granularity);
+
+        // 2.创建集合用于存放每个时间段新增的用户数量
+        List<Integer> newUserList = buckets.values().stream()
+                .map(ReportBucketDTO::getNewUserCount).collect(Collectors.toList());
+        // 3.创建集合用于存放截至每个时间段的总用户数量
+        List<Integer> totalUserList = buckets.values().stream()
+                .map(ReportBucketDTO::getTotalUserCount).collect(Collectors.toList());
+
+        // 4.创建UserReportVO对象封装数据返回
         UserReportVO userReportVO = UserReportVO.builder()
-                .dateList(StringUtils.join(dateList, ","))
+                .dateList(StringUtils.join(labels(buckets, granularity), ","))
                 .totalUserList(StringUtils.join(totalUserList, ","))
                 .newUserList(StringUtils.join(newUserList, ","))
                 .build();
@@ -135,48 +110,34 @@ public class ReportServiceImpl implements ReportService {
      *
      * @param begin
      * @param end
+     * @param granularity
      * @return
      */
     @Override
-    public OrderReportVO getOrderStatistics(LocalDate begin, LocalDate end) {
-        // 1.创建集合用于存放从begin到end范围内每天的日期
-        List<LocalDate> dateList = new ArrayList<>();
-        dateList.add(begin);
-        while (!begin.equals(end)) {
-            begin = begin.plusDays(1);
-            dateList.add(begin);
-        }
-
-        // 2.创建集合用于存放每天有效订单
-        List<Integer> validOrderCountList = new ArrayList<>();
-        // 3.创建集合用于存放每天总订单
-        List<Integer> orderCountList = new ArrayList<>();
-
-        // 4.遍历dateList集合，查询每天的有效订单数和订单总数
-        for (LocalDate date : dateList) {
-            LocalDateTime beginTime = LocalDateTime.of(date, LocalTime.MIN);
-            LocalDateTime endTime = LocalDateTime.of(date, LocalTime.MAX);
-            // 查询每天订单总数 select count(id) from orders where order_time > ? and order_time < ?
-            Integer orderCount = getOrderCount(beginTime, endTime, null);
-            // 查询每天有效订单数 select count(id) from orders where order_time > ? and order_time < ? and status = 5
-            Integer validOrderCount = getOrderCount(beginTime, endTime, Orders.COMPLETED);
-            orderCountList.add(orderCount);
-            validOrderCountList.add(validOrderCount);
-        }
-
-        // 5.获取时间区间内订单总数
-        Integer totalOrderCount = orderCountList.stream().reduce(Integer::sum).get();
-        // 6.计算时间区间内有效订单数
-        Integer validOrderCount = validOrderCountList.stream().reduce(Integer::sum).get();
-
-        // 7.计算订单完成率
+    public OrderReportVO getOrderStatistics(LocalDate begin, LocalDate end, ReportGranularity granularity) {
+        // 1.一次查询按时间段统计订单总数和有效订单数
+        Map<LocalDateTime, ReportBucketDTO> buckets = reportAggregator.orderStatistics(begin, end, granularity);
+
+        // 2.创建集合用于存放每个时间段的有效订单数
+        List<Integer> validOrderCountList = buckets.values().stream()
+                .map(ReportBucketDTO::getValidOrderCount).collect(Collectors.toList());
+        // 3.创建集合用于存放每个时间段的订单总数
+        List<Integer> orderCountList = buckets.values().stream()
+                .map(ReportBucketDTO::getOrderCount).collect(Collectors.toList());
+
+        // 4.获取时间区间内订单总数
+        Integer totalOrderCount = orderCountList.stream().reduce(0, Integer::sum);
+        // 5.计算时间区间内有效订单数
+        Integer validOrderCount = validOrderCountList.stream().reduce(0, Integer::sum);
+
+        // 6.计算订单完成率
         Double orderCompletionRate = 0.0;
         if (totalOrderCount != 0) {
             orderCompletionRate = validOrderCount.doubleValue() / totalOrderCount;
         }
 
         OrderReportVO orderReportVO = OrderReportVO.builder()
-                .dateList(StringUtils.join(dateList, ","))
+                .dateList(StringUtils.join(labels(buckets, granularity), ","))
                 .validOrderCountList(StringUtils.join(validOrderCountList, ","))
                 .orderCountList(StringUtils.join(orderCountList, ","))
                 .orderCompletionRate(orderCompletionRate)
@@ -187,20 +148,14 @@ public class ReportServiceImpl implements ReportService {
     }
 
     /**
-     * 根据条件统计订单数量
+     * 生成报表中各时间段的名称
      *
-     * @param begin
-     * @param end
-     * @param status
+     * @param buckets
+     * @param granularity
      * @return
      */
-    private Integer getOrderCount(LocalDateTime begin, LocalDateTime end, Integer status) {
-        Map map = new HashMap();
-        map.put("begin", begin);
-        map.put("end", end);
-        map.put("status", status);
-        Integer orderCount = orderMapper.countByMap(map);
-        return orderCount;
+    private List<String> labels(Map<LocalDateTime, ReportBucketDTO> buckets, ReportGranularity granularity) {
+        return buckets.keySet().stream().map(granularity::label).collect(Collectors.toList());
     }
 
     /**
@@ -212,10 +167,8 @@ public class ReportServiceImpl implements ReportService {
      */
     @Override
     public SalesTop10ReportVO getSalesTop10(LocalDate begin, LocalDate end) {
-        // 1.根据时间区间获取销量排名top10订单集合
-        LocalDateTime beginTime = LocalDateTime.of(begin, LocalTime.MIN);
-        LocalDateTime endTime = LocalDateTime.of(end, LocalTime.MAX);
-        List<GoodsSalesDTO> salesTop10 = orderMapper.getSalesTop10(beginTime, endTime);
+        // 1.根据时间区间获取销量排名top10订单集合，历史日期读取每日商品销量汇总
+        List<GoodsSalesDTO> salesTop10 = reportAggregator.salesTop10(begin, end);
 
         // 2.将订单集合中的商品名称属性解析成指定格式
         List<String> names = salesTop10.stream().map(GoodsSalesDTO::getName).collect(Collectors.toList());
@@ -233,69 +186,123 @@ public class ReportServiceImpl implements ReportService {
         return salesTop10ReportVO;
     }
 
+    /**
+     * 重新汇总指定日期区间的每日营业数据
+     *
+     * @param begin
+     * @param end
+     * @return
+     */
+    @Override
+    public int rollup(LocalDate begin, LocalDate end) {
+        if (begin == null || end == null || begin.isAfter(end)) {
+            throw new ReportBusinessException(MessageConstant.REPORT_DATE_RANGE_ERROR);
+        }
+        dailyStatsRollup.createTablesIfAbsent();
+        return dailyStatsRollup.rollup(begin, end);
+    }
+
     /**
      * 导出Excel运营数据报表
      *
+     * @param begin 为空时导出最近30天
+     * @param end
      * @param response
      */
-    public void exportBusinessData(HttpServletResponse response) {
-        //1. 查询数据库，获取营业数据---查询最近30天的运营数据
-        LocalDate dateBegin = LocalDate.now().minusDays(30);
-        LocalDate dateEnd = LocalDate.now().minusDays(1);
-
-        //查询概览数据
-        BusinessDataVO businessDataVO = workspaceService.getBusinessData(LocalDateTime.of(dateBegin, LocalTime.MIN), LocalDateTime.of(dateEnd, LocalTime.MAX));
-
-        //2. 通过POI将数据写入到Excel文件中
-        InputStream in = this.getClass().getClassLoader().getResourceAsStream("template/运营数据报表模板.xlsx");
+    @Override
+    public void exportBusinessData(LocalDate begin, LocalDate end, HttpServletResponse response) {
+        if (begin == null || end == null) {
+            begin = LocalDate.now().minusDays(30);
+            end = LocalDate.now().minusDays(1);
+        }
+        if (begin.isAfter(end)) {
+            throw new ReportBusinessException(MessageConstant.REPORT_DATE_RANGE_ERROR);
+        }
 
         try {
-            //基于模板文件创建一个新的Excel文件
-            XSSFWorkbook excel = new XSSFWorkbook(in);
-
-            //获取表格文件的sheet页
-            XSSFSheet sheet = excel.getSheet("sheet1");
-
-            //填充第2行数据--时间
-            sheet.getRow(1).getCell(1).setCellValue("时间：" + dateBegin + "到" + dateEnd);
+            setExcelHeaders(response, "运营数据报表_" + begin + "_" + end + ".xlsx");
 
-            //获得第4行
-            XSSFRow row = sheet.getRow(3);
-            row.getCell(2).setCellValue(businessDataVO.getTurnover());
-            row.getCell(4).setCellValue(businessDataVO.getOrderCompletionRate());
-            row.getCell(6).setCellValue(businessDataVO.getNewUsers());
+            // 直接写入响应输出流，不在内存中生成完整文件
+            ServletOutputStream out = response.getOutputStream();
+            businessDataExcelWriter.write(begin, end, out);
+            out.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-            //获得第5行
-            row = sheet.getRow(4);
-            row.getCell(2).setCellValue(businessDataVO.getValidOrderCount());
-            row.getCell(4).setCellValue(businessDataVO.getUnitPrice());
+    /**
+     * 创建异步导出任务
+     *
+     * @param begin 为空时导出最近30天
+     * @param end
+     * @return
+     */
+    @Override
+    public ExportJobVO createExportJob(LocalDate begin, LocalDate end) {
+        if (begin == null || end == null) {
+            begin = LocalDate.now().minusDays(30);
+            end = LocalDate.now().minusDays(1);
+        }
+        if (begin.isAfter(end)) {
+            throw new ReportBusinessException(MessageConstant.REPORT_DATE_RANGE_ERROR);
+        }
+        return exportJobManager.submit(begin, end).toVO();
+    }
 
-            //填充明细数据
-            for (int i = 0; i < 30; i++) {
-                LocalDate date = dateBegin.plusDays(i);
-                //查询某一天的营业数据
-                BusinessDataVO businessData = workspaceService.getBusinessData(LocalDateTime.of(date, LocalTime.MIN), LocalDateTime.of(date, LocalTime.MAX));
+    /**
+     * 查询异步导出任务的状态和进度
+     *
+     * @param id
+     * @return
+     */
+    @Override
+    public ExportJobVO getExportJob(String id) {
+        return exportJobManager.get(id).toVO();
+    }
 
-                //获得某一行
-                row = sheet.getRow(7 + i);
-                row.getCell(1).setCellValue(date.toString());
-                row.getCell(2).setCellValue(businessData.getTurnover());
-                row.getCell(3).setCellValue(businessData.getValidOrderCount());
-                row.getCell(4).setCellValue(businessData.getOrderCompletionRate());
-                row.getCell(5).setCellValue(businessData.getUnitPrice());
-                row.getCell(6).setCellValue(businessData.getNewUsers());
+    /**
+     * 下载异步导出任务生成的文件
+     * 连接器支持sendfile时交给tomcat通过sendfile直接从文件发送到socket(零拷贝)；
+     * 否则通过FileChannel.transferTo写到响应输出流，数据会经过一个复制缓冲区，不是零拷贝，只是文件不会整体读入内存
+     * sendfile在方法返回后才由tomcat发送，无法得知结束时间，这种情况下依靠开始下载后的保留时间避免文件被清理
+     *
+     * @param id
+     * @param request
+     * @param response
+     */
+    @Override
+    public void downloadExport(String id, HttpServletRequest request, HttpServletResponse response) {
+        ExportJob job = exportJobManager.beginDownload(id);
+        Path file = job.getFile();
+        try {
+            long size = Files.size(file);
+            setExcelHeaders(response, job.getFileName());
+            response.setContentLengthLong(size);
+
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START, 0L);
+                request.setAttribute(SENDFILE_END, size);
+                return;
             }
 
-            //3. 通过输出流将Excel文件下载到客户端浏览器
-            ServletOutputStream out = response.getOutputStream();
-            excel.write(out);
-
-            //关闭资源
-            out.close();
-            excel.close();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+                long position = 0;
+                while (position < size) {
+                    position += channel.transferTo(position, size - position, target);
+                }
+            }
         } catch (IOException e) {
             throw new RuntimeException(e);
+        } finally {
+            job.endDownload();
         }
+    }
 
+    private void setExcelHeaders(HttpServletResponse response, String fileName) throws IOException {
+        response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+        response.setHeader("Content-Disposition", "attachment; filename*=UTF-8''" + URLEncoder.encode(fileName, "UTF-8"));
     }
 }
@@ -24,7 +24,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class SetmealServiceImpl implements SetmealService {
@@ -194,4 +198,51 @@ public class SetmealServiceImpl implements SetmealService {
     public List<DishItemVO> getDishItemById(Long id) {
         return setmealMapper.getDishItemBySetmealId(id);
     }
+
+    /**
+     * 批量查询多个套餐包含的菜品列表
+     * 查询一次套餐菜品关系和一次菜品，与getDishItemById相同，菜品不存在时图片和描述为空
+     * @param setmealIds
+     * @return
+     */
+    @Override
+    public Map<Long, List<DishItemVO>> getDishItemsBySetmealIds(List<Long> setmealIds) {
+        Map<Long, List<DishItemVO>> dishItemMap = new HashMap<>();
+        if (setmealIds == null || setmealIds.isEmpty()) {
+            return dishItemMap;
+        }
+        List<SetmealDish> setmealDishes = setmealDishMapper.getBySetmealIds(setmealIds);
+        if (setmealDishes.isEmpty()) {
+            return dishItemMap;
+        }
+
+        List<Long> dishIds = setmealDishes.stream().map(SetmealDish::getDishId).distinct().collect(Collectors.toList());
+        Map<Long, Dish> dishMap = dishMapper.getByIds(dishIds).stream()
+                .collect(Collectors.toMap(Dish::getId, Function.identity()));
+
+        for (SetmealDish setmealDish : setmealDishes) {
+            Dish dish = dishMap.get(setmealDish.getDishId());
+            dishItemMap.computeIfAbsent(setmealDish.getSetmealId(), k -> new ArrayList<>()).add(DishItemVO.builder()
+                    .dishId(setmealDish.getDishId())
+                    .name(setmealDish.getName())
+                    .copies(setmealDish.getCopies())
+                    .image(dish == null ? null : dish.getImage())
+                    .description(dish == null ? null : dish.getDescription())
+                    .build());
+        }
+        return dishItemMap;
+    }
+
+    /**
+     * 查询套餐所属的分类id，用于精确清理缓存
+     * @param ids
+     * @return
+     */
+    @Override
+    public List<Long> getCategoryIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return setmealMapper.getCategoryIdsByIds(ids);
+    }
 }
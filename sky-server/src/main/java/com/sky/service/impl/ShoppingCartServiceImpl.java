@@ -11,12 +11,17 @@ import com.sky.mapper.ShoppingCartMapper;
 import com.sky.service.ShoppingCartService;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
+/**
+ * 购物车服务（MySQL存储，默认实现）
+ */
 @Service
+@ConditionalOnProperty(prefix = "sky.shopping-cart", name = "storage", havingValue = "mysql", matchIfMissing = true)
 public class ShoppingCartServiceImpl implements ShoppingCartService {
 
     @Autowired
@@ -95,6 +100,21 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
         shoppingCartMapper.deleteByUserId(userId);
     }
 
+    /**
+     * 取出并清空购物车
+     * 加锁读取后删除，与下单在同一个事务中，事务回滚时删除也一起回滚
+     * @return
+     */
+    @Override
+    public List<ShoppingCart> drain() {
+        Long userId = BaseContext.getCurrentId();
+        List<ShoppingCart> list = shoppingCartMapper.listForUpdate(userId);
+        if (list != null && !list.isEmpty()) {
+            shoppingCartMapper.deleteByUserId(userId);
+        }
+        return list;
+    }
+
 
     /**
      * 删除购物车中一个商品
@@ -124,4 +144,13 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
             }
         }
     }
+
+    /**
+     * 批量添加购物车商品
+     * @param shoppingCartList
+     */
+    @Override
+    public void addBatch(List<ShoppingCart> shoppingCartList) {
+        shoppingCartMapper.insertBatch(shoppingCartList);
+    }
 }
@@ -1,11 +1,14 @@
 package com.sky.service.impl;
 
 import com.sky.constant.StatusConstant;
+import com.sky.dto.OrderStatusCountDTO;
+import com.sky.dto.ReportBucketDTO;
 import com.sky.entity.Orders;
 import com.sky.mapper.DishMapper;
 import com.sky.mapper.OrderMapper;
 import com.sky.mapper.SetmealMapper;
 import com.sky.mapper.UserMapper;
+import com.sky.report.ReportAggregator;
 import com.sky.service.WorkspaceService;
 import com.sky.vo.BusinessDataVO;
 import com.sky.vo.DishOverViewVO;
@@ -17,7 +20,9 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -32,6 +37,8 @@ public class WorkspaceServiceImpl implements WorkspaceService {
     private DishMapper dishMapper;
     @Autowired
     private SetmealMapper setmealMapper;
+    @Autowired
+    private ReportAggregator reportAggregator;
 
     /**
      * 根据时间段统计营业数据
@@ -49,22 +56,39 @@ public class WorkspaceServiceImpl implements WorkspaceService {
          * 新增用户：当日新增用户的数量
          */
 
-        Map map = new HashMap();
-        map.put("begin", begin);
-        map.put("end", end);
-
-        // 1.查询总订单数
-        Integer totalOrderCount = orderMapper.countByMap(map);
-
-        // 2.查询营业额
-        map.put("status", Orders.COMPLETED);
-        Double turnover = orderMapper.sumByMap(map);
-        turnover = turnover == null ? 0 : turnover;
-
-        // 3.查询有效订单数
-        Integer validOrderCount = orderMapper.countByMap(map);
+        Integer totalOrderCount;
+        Double turnover;
+        Integer validOrderCount;
+        Integer newUsers;
+
+        if (LocalTime.MIN.equals(begin.toLocalTime()) && LocalTime.MAX.equals(end.toLocalTime())) {
+            // 整天的区间读取每日汇总，今天的数据来自实时计数
+            Collection<ReportBucketDTO> days = reportAggregator.dailyStatistics(begin.toLocalDate(), end.toLocalDate()).values();
+            totalOrderCount = days.stream().mapToInt(ReportBucketDTO::getOrderCount).sum();
+            turnover = days.stream().mapToDouble(ReportBucketDTO::getTurnover).sum();
+            validOrderCount = days.stream().mapToInt(ReportBucketDTO::getValidOrderCount).sum();
+            newUsers = days.stream().mapToInt(ReportBucketDTO::getNewUserCount).sum();
+        } else {
+            Map map = new HashMap();
+            map.put("begin", begin);
+            map.put("end", end);
+
+            // 1.查询总订单数
+            totalOrderCount = orderMapper.countByMap(map);
+
+            // 2.查询营业额
+            map.put("status", Orders.COMPLETED);
+            turnover = orderMapper.sumByMap(map);
+            turnover = turnover == null ? 0 : turnover;
+
+            // 3.查询有效订单数
+            validOrderCount = orderMapper.countByMap(map);
+
+            // 4.查询新增用户数
+            newUsers = userMapper.countByMap(map);
+        }
 
-        // 4.平均客单价和订单完成率
+        // 5.平均客单价和订单完成率
         Double unitPrice = 0.0;
         Double orderCompletionRate = 0.0;
         if(totalOrderCount != 0 && validOrderCount != 0){
@@ -72,9 +96,6 @@ public class WorkspaceServiceImpl implements WorkspaceService {
             orderCompletionRate = validOrderCount.doubleValue() / totalOrderCount;
         }
 
-        // 5.新增用户数
-        Integer newUsers = userMapper.countByMap(map);
-
         // 6.封装到BusinessDataVO返回
         BusinessDataVO businessDataVO = BusinessDataVO.builder()
                 .turnover(turnover)
@@ -92,30 +113,28 @@ public class WorkspaceServiceImpl implements WorkspaceService {
      */
     @Override
     public OrderOverViewVO getOrderOverView() {
-        // 1.封装条件
-        Map map = new HashMap();
-        map.put("begin", LocalDateTime.now().with(LocalTime.MIN));
-        map.put("end", LocalDateTime.now().with(LocalTime.MAX));
-        map.put("status", Orders.TO_BE_CONFIRMED);
+        // 1.一次查询按状态分组统计今日订单数量
+        List<OrderStatusCountDTO> list = orderMapper.countGroupByStatus(
+                LocalDateTime.now().with(LocalTime.MIN), LocalDateTime.now().with(LocalTime.MAX));
+        Map<Integer, Integer> countMap = new HashMap<>();
+        for (OrderStatusCountDTO dto : list) {
+            countMap.put(dto.getStatus(), dto.getCount());
+        }
 
         // 2.待接单数量
-        Integer waitingOrders = orderMapper.countByMap(map);
+        Integer waitingOrders = countMap.getOrDefault(Orders.TO_BE_CONFIRMED, 0);
 
         // 3.待派送数量
-        map.put("status", Orders.CONFIRMED);
-        Integer deliveredOrders = orderMapper.countByMap(map);
+        Integer deliveredOrders = countMap.getOrDefault(Orders.CONFIRMED, 0);
 
         // 4.已完成数量
-        map.put("status", Orders.COMPLETED);
-        Integer completedOrders = orderMapper.countByMap(map);
+        Integer completedOrders = countMap.getOrDefault(Orders.COMPLETED, 0);
 
         // 5.已取消数量
-        map.put("status", Orders.CANCELLED);
-        Integer cancelledOrders = orderMapper.countByMap(map);
+        Integer cancelledOrders = countMap.getOrDefault(Orders.CANCELLED, 0);
 
         // 6.全部订单数量
-        map.put("status", null);
-        Integer allOrders = orderMapper.countByMap(map);
+        Integer allOrders = countMap.values().stream().mapToInt(Integer::intValue).sum();
 
         // 7.封装结果返回
         OrderOverViewVO orderOverViewVO = OrderOverViewVO.builder()
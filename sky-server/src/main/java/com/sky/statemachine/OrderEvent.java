@@ -0,0 +1,47 @@
+package com.sky.statemachine;
+
+import com.sky.entity.Orders;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 订单状态流转事件，定义每个事件允许的起始状态和流转后的目标状态
+ * 订单状态 1待付款 2待接单 3已接单 4派送中 5已完成 6已取消
+ */
+public enum OrderEvent {
+
+    // 支付成功：待付款 -> 待接单
+    PAY(Orders.TO_BE_CONFIRMED, Orders.PENDING_PAYMENT),
+    // 接单：待接单 -> 已接单
+    CONFIRM(Orders.CONFIRMED, Orders.TO_BE_CONFIRMED),
+    // 拒单：待接单 -> 已取消
+    REJECT(Orders.CANCELLED, Orders.TO_BE_CONFIRMED),
+    // 派送：已接单 -> 派送中
+    DELIVER(Orders.DELIVERY_IN_PROGRESS, Orders.CONFIRMED),
+    // 完成：派送中 -> 已完成
+    COMPLETE(Orders.COMPLETED, Orders.DELIVERY_IN_PROGRESS),
+    // 用户取消：待付款/待接单 -> 已取消
+    USER_CANCEL(Orders.CANCELLED, Orders.PENDING_PAYMENT, Orders.TO_BE_CONFIRMED),
+    // 商家取消：未完成的订单 -> 已取消
+    ADMIN_CANCEL(Orders.CANCELLED, Orders.PENDING_PAYMENT, Orders.TO_BE_CONFIRMED, Orders.CONFIRMED, Orders.DELIVERY_IN_PROGRESS),
+    // 超时未支付自动取消：待付款 -> 已取消
+    TIMEOUT_CANCEL(Orders.CANCELLED, Orders.PENDING_PAYMENT);
+
+    private final Integer targetStatus;
+    private final List<Integer> fromStatuses;
+
+    OrderEvent(Integer targetStatus, Integer... fromStatuses) {
+        this.targetStatus = targetStatus;
+        this.fromStatuses = Collections.unmodifiableList(Arrays.asList(fromStatuses));
+    }
+
+    public Integer getTargetStatus() {
+        return targetStatus;
+    }
+
+    public List<Integer> getFromStatuses() {
+        return fromStatuses;
+    }
+}
@@ -0,0 +1,199 @@
+package com.sky.statemachine;
+
+import com.sky.constant.MessageConstant;
+import com.sky.entity.Orders;
+import com.sky.exception.OrderBusinessException;
+import com.sky.mapper.OrderMapper;
+import com.sky.report.TodayBusinessCounter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * 订单状态机
+ * 每次状态流转只执行一条带状态条件的update语句（update ... where id = ? and status in (...)），
+ * 通过影响行数判断流转是否成功，多个终端同时操作同一订单时只会有一个成功；
+ * 存在多个起始状态（需要知道订单由哪个状态流转而来以维护状态计数），或流转后需要订单数据（完成订单计入营业额）时，
+ * 在同一事务中先 select ... for update 锁定订单，流转后直接使用锁定的订单数据，不再重复查询
+ */
+@Component
+@Slf4j
+public class OrderStateMachine {
+
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private OrderStatusCounter orderStatusCounter;
+    @Autowired
+    private OrderTimeoutQueue orderTimeoutQueue;
+    @Autowired
+    private TodayBusinessCounter todayBusinessCounter;
+
+    /**
+     * 按事件定义的起始状态执行状态流转
+     *
+     * @param event
+     * @param orders 需要包含订单id，以及本次需要一起修改的字段（取消原因、取消时间等）
+     * @return 流转是否成功
+     */
+    @Transactional
+    public boolean fire(OrderEvent event, Orders orders) {
+        return fire(event, orders, event.getFromStatuses());
+    }
+
+    /**
+     * 对调用方已经通过 OrderMapper.getByIdForUpdate 锁定的订单执行状态流转，
+     * 调用方可以根据锁定订单的当前状态决定本次一起修改的字段（如是否退款），必须在加锁的同一事务中调用
+     *
+     * @param event
+     * @param orders 需要包含订单id，以及本次需要一起修改的字段
+     * @param locked 锁定的订单，为null表示订单不存在；流转成功后会被更新为流转完成后的订单数据
+     * @return 流转是否成功，订单当前状态不是事件允许的起始状态时返回false
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean fire(OrderEvent event, Orders orders, Orders locked) {
+        if (locked == null || !event.getFromStatuses().contains(locked.getStatus())) {
+            log.info("订单状态流转失败，订单id：{}，事件：{}，当前状态：{}",
+                    orders.getId(), event, locked == null ? null : locked.getStatus());
+            return false;
+        }
+
+        Integer fromStatus = locked.getStatus();
+        orders.setStatus(event.getTargetStatus());
+        if (orderMapper.updateByStatus(orders, event.getFromStatuses()) == 0) {
+            // 订单已加锁，正常不会发生
+            return false;
+        }
+        onTransition(event, fromStatus, merge(locked, orders));
+        return true;
+    }
+
+    /**
+     * 批量执行状态流转，只修改仍处于起始状态的订单
+     *
+     * @param event
+     * @param orders     本次需要一起修改的字段，不需要包含订单id
+     * @param ids        订单id集合
+     * @param fromStatus 起始状态
+     * @return 实际完成流转的订单数量
+     */
+    public int fireBatch(OrderEvent event, Orders orders, List<Long> ids, Integer fromStatus) {
+        if (!event.getFromStatuses().contains(fromStatus)) {
+            throw new IllegalArgumentException("事件" + event + "不允许从状态" + fromStatus + "流转");
+        }
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+
+        orders.setStatus(event.getTargetStatus());
+        int rows = orderMapper.updateBatchByStatus(orders, ids, fromStatus);
+        if (rows > 0) {
+            orderStatusCounter.onTransition(fromStatus, event.getTargetStatus(), rows);
+        }
+        return rows;
+    }
+
+    /**
+     * 执行状态流转，失败时抛出业务异常
+     *
+     * @param event
+     * @param orders
+     */
+    @Transactional
+    public void fireOrThrow(OrderEvent event, Orders orders) {
+        if (!fire(event, orders)) {
+            throw failure(orders.getId());
+        }
+    }
+
+    /**
+     * 根据订单id构造状态流转失败的异常：订单不存在或订单状态错误
+     * 只在流转失败时才额外查询一次，正常流转只有一条update语句
+     *
+     * @param orderId
+     * @return
+     */
+    public OrderBusinessException failure(Long orderId) {
+        if (orderMapper.getById(orderId) == null) {
+            return new OrderBusinessException(MessageConstant.ORDER_NOT_FOUND);
+        }
+        return new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
+    }
+
+    private boolean fire(OrderEvent event, Orders orders, List<Integer> fromStatuses) {
+        // 只有一个起始状态且流转后不需要订单数据时直接更新
+        if (fromStatuses.size() == 1 && !Orders.COMPLETED.equals(event.getTargetStatus())) {
+            orders.setStatus(event.getTargetStatus());
+            if (orderMapper.updateByStatus(orders, fromStatuses) > 0) {
+                onTransition(event, fromStatuses.get(0), orders);
+                return true;
+            }
+            log.info("订单状态流转失败，订单id：{}，事件：{}，要求起始状态：{}", orders.getId(), event, fromStatuses);
+            return false;
+        }
+
+        // 否则先锁定订单确定起始状态，再执行一次条件更新
+        Orders locked = orderMapper.getByIdForUpdate(orders.getId());
+        if (locked == null || !fromStatuses.contains(locked.getStatus())) {
+            log.info("订单状态流转失败，订单id：{}，事件：{}，要求起始状态：{}", orders.getId(), event, fromStatuses);
+            return false;
+        }
+        return fire(event, orders, locked);
+    }
+
+    /**
+     * 将本次修改的字段合并到锁定的订单上，得到流转完成后的订单数据
+     *
+     * @param locked
+     * @param orders
+     * @return
+     */
+    private Orders merge(Orders locked, Orders orders) {
+        locked.setStatus(orders.getStatus());
+        if (orders.getCancelReason() != null) {
+            locked.setCancelReason(orders.getCancelReason());
+        }
+        if (orders.getRejectionReason() != null) {
+            locked.setRejectionReason(orders.getRejectionReason());
+        }
+        if (orders.getCancelTime() != null) {
+            locked.setCancelTime(orders.getCancelTime());
+        }
+        if (orders.getPayStatus() != null) {
+            locked.setPayStatus(orders.getPayStatus());
+        }
+        if (orders.getPayMethod() != null) {
+            locked.setPayMethod(orders.getPayMethod());
+        }
+        if (orders.getCheckoutTime() != null) {
+            locked.setCheckoutTime(orders.getCheckoutTime());
+        }
+        if (orders.getDeliveryTime() != null) {
+            locked.setDeliveryTime(orders.getDeliveryTime());
+        }
+        return locked;
+    }
+
+    /**
+     * 流转完成后维护状态计数、超时队列和今日营业数据
+     *
+     * @param event
+     * @param fromStatus
+     * @param orders 流转完成后的订单，完成订单时为锁定后合并了本次修改的完整订单
+     */
+    private void onTransition(OrderEvent event, Integer fromStatus, Orders orders) {
+        orderStatusCounter.onTransition(fromStatus, event.getTargetStatus());
+        if (Orders.PENDING_PAYMENT.equals(fromStatus)) {
+            // 订单已支付或已取消，不再需要超时取消
+            orderTimeoutQueue.remove(orders.getId());
+        }
+        if (Orders.COMPLETED.equals(event.getTargetStatus())) {
+            // 订单完成，计入今日营业额和有效订单
+            todayBusinessCounter.onOrderCompleted(orders);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.sky.statemachine;
+
+import com.sky.cache.RedisLock;
+import com.sky.dto.OrderStatusCountDTO;
+import com.sky.mapper.OrderMapper;
+import com.sky.properties.OrderCounterProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 订单状态计数器，记录每种状态的订单数量
+ * 下单和每次状态流转时增减计数，查询时直接读取，不再扫描orders表；
+ * 启动时通过一次group by查询重建，并定时与数据库对账修正偏差
+ * mode为redis时计数存放在redis哈希中，多个节点共享，重建只由获取到锁的一个节点执行
+ */
+@Component
+@Slf4j
+public class OrderStatusCounter {
+
+    private static final String REDIS_KEY = "order_status_count";
+    private static final String LOCK_NAME = "order_status_count_rebuild";
+    private static final long LOCK_TIMEOUT_MILLIS = 60000;
+
+    // 清空并写入新的计数，在一个脚本中执行，其他节点的增减不会落在删除和写入之间而丢失
+    private static final DefaultRedisScript<Long> REBUILD_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('DEL', KEYS[1]) " +
+                    "for i = 1, #ARGV, 2 do " +
+                    "redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1]) " +
+                    "end " +
+                    "return #ARGV / 2", Long.class);
+
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private OrderCounterProperties orderCounterProperties;
+    @Autowired
+    private RedisLock redisLock;
+
+    private final Map<Integer, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 新订单创建
+     *
+     * @param status
+     */
+    public void onCreated(Integer status) {
+        afterCommit(() -> add(status, 1));
+    }
+
+    /**
+     * 订单状态流转
+     *
+     * @param fromStatus
+     * @param toStatus
+     */
+    public void onTransition(Integer fromStatus, Integer toStatus) {
+        onTransition(fromStatus, toStatus, 1);
+    }
+
+    /**
+     * 批量订单状态流转
+     *
+     * @param fromStatus
+     * @param toStatus
+     * @param count 完成流转的订单数量
+     */
+    public void onTransition(Integer fromStatus, Integer toStatus, int count) {
+        afterCommit(() -> {
+            add(fromStatus, -count);
+            add(toStatus, count);
+        });
+    }
+
+    /**
+     * 获取指定状态的订单数量
+     *
+     * @param status
+     * @return
+     */
+    public Integer get(Integer status) {
+        if (isRedisMode()) {
+            Object value = stringRedisTemplate.opsForHash().get(REDIS_KEY, String.valueOf(status));
+            return value == null ? 0 : Integer.valueOf(value.toString());
+        }
+        AtomicLong counter = counters.get(status);
+        return counter == null ? 0 : (int) counter.get();
+    }
+
+    /**
+     * 获取全部状态的订单数量
+     *
+     * @return
+     */
+    public Map<Integer, Integer> getAll() {
+        Map<Integer, Integer> result = new HashMap<>();
+        if (isRedisMode()) {
+            stringRedisTemplate.opsForHash().entries(REDIS_KEY)
+                    .forEach((k, v) -> result.put(Integer.valueOf(k.toString()), Integer.valueOf(v.toString())));
+        } else {
+            counters.forEach((k, v) -> result.put(k, (int) v.get()));
+        }
+        return result;
+    }
+
+    /**
+     * 启动完成后根据数据库重建计数
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (isRedisMode()) {
+            redisLock.runIfLocked(LOCK_NAME, LOCK_TIMEOUT_MILLIS, () -> {
+                Map<Integer, Integer> counts = countFromDb();
+                List<String> args = new ArrayList<>();
+                counts.forEach((k, v) -> {
+                    args.add(String.valueOf(k));
+                    args.add(String.valueOf(v));
+                });
+                stringRedisTemplate.execute(REBUILD_SCRIPT, Collections.singletonList(REDIS_KEY), args.toArray());
+                log.info("订单状态计数器重建完成：{}", counts);
+            });
+        } else {
+            Map<Integer, Integer> counts = countFromDb();
+            counters.keySet().retainAll(counts.keySet());
+            counts.forEach((k, v) -> counters.computeIfAbsent(k, key -> new AtomicLong()).set(v));
+            log.info("订单状态计数器重建完成：{}", counts);
+        }
+    }
+
+    /**
+     * 定时与数据库对账，修正事务回滚、节点宕机等原因造成的偏差
+     */
+    @Scheduled(initialDelayString = "#{@orderCounterProperties.reconcileDelay}",
+            fixedDelayString = "#{@orderCounterProperties.reconcileDelay}")
+    public void reconcile() {
+        rebuild();
+    }
+
+    private Map<Integer, Integer> countFromDb() {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (OrderStatusCountDTO dto : orderMapper.countGroupByStatus(null, null)) {
+            counts.put(dto.getStatus(), dto.getCount());
+        }
+        return counts;
+    }
+
+    private void add(Integer status, long delta) {
+        if (status == null) {
+            return;
+        }
+        if (isRedisMode()) {
+            stringRedisTemplate.opsForHash().increment(REDIS_KEY, String.valueOf(status), delta);
+        } else {
+            counters.computeIfAbsent(status, k -> new AtomicLong()).addAndGet(delta);
+        }
+    }
+
+    /**
+     * 存在事务时在事务提交后再修改计数，避免回滚的订单被计入
+     *
+     * @param action
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private boolean isRedisMode() {
+        return "redis".equals(orderCounterProperties.getMode());
+    }
+}
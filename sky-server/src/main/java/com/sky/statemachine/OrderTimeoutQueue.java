@@ -0,0 +1,82 @@
+package com.sky.statemachine;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 订单支付超时延迟队列
+ * 基于redis有序集合实现，member为订单id，score为支付截止时间(毫秒)，多个节点共享同一个队列
+ */
+@Component
+@Slf4j
+public class OrderTimeoutQueue {
+
+    // 下单后超过15分钟未支付自动取消
+    public static final long PAY_TIMEOUT_MINUTES = 15;
+
+    private static final String KEY = "order_pay_timeout";
+
+    // 原子地取出并删除已到期的订单id，保证多个节点不会重复处理同一订单
+    private static final DefaultRedisScript<List> POLL_SCRIPT = new DefaultRedisScript<>(
+            "local ids = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2]) " +
+                    "if #ids > 0 then redis.call('ZREM', KEYS[1], unpack(ids)) end " +
+                    "return ids", List.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 登记订单的支付截止时间
+     *
+     * @param orderId
+     * @param deadlineMillis
+     */
+    public void register(Long orderId, long deadlineMillis) {
+        stringRedisTemplate.opsForZSet().add(KEY, String.valueOf(orderId), deadlineMillis);
+    }
+
+    /**
+     * 订单已支付或已取消，从队列中移除
+     *
+     * @param orderId
+     */
+    public void remove(Long orderId) {
+        stringRedisTemplate.opsForZSet().remove(KEY, String.valueOf(orderId));
+    }
+
+    /**
+     * 取出已到期的订单id
+     *
+     * @param limit 最多取出的数量
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public List<Long> pollDue(int limit) {
+        List<String> ids = stringRedisTemplate.execute(POLL_SCRIPT, Collections.singletonList(KEY),
+                String.valueOf(System.currentTimeMillis()), String.valueOf(limit));
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return ids.stream().map(Long::valueOf).collect(Collectors.toList());
+    }
+
+    /**
+     * 处理失败时将订单重新放回队列，立即到期
+     *
+     * @param orderIds
+     */
+    public void requeue(List<Long> orderIds) {
+        long now = System.currentTimeMillis();
+        for (Long orderId : orderIds) {
+            register(orderId, now);
+        }
+        log.warn("超时订单重新放回队列：{}", orderIds);
+    }
+}
@@ -2,6 +2,9 @@ package com.sky.task;
 
 import com.sky.entity.Orders;
 import com.sky.mapper.OrderMapper;
+import com.sky.statemachine.OrderEvent;
+import com.sky.statemachine.OrderStateMachine;
+import com.sky.statemachine.OrderTimeoutQueue;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -16,29 +19,60 @@ public class OrderTask {
 
     @Autowired
     private OrderMapper orderMapper;
+    @Autowired
+    private OrderStateMachine orderStateMachine;
+    @Autowired
+    private OrderTimeoutQueue orderTimeoutQueue;
+
+    /**
+     * 处理延迟队列中到期的超时未支付订单，每秒触发一次
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void processTimeoutQueue(){
+        List<Long> ids;
+        // 每次最多取出100个到期订单，批量取消
+        while (!(ids = orderTimeoutQueue.pollDue(100)).isEmpty()) {
+            try {
+                int rows = cancelTimeoutOrders(ids);
+                log.info("超时未支付订单自动取消，到期订单数：{}，取消订单数：{}", ids.size(), rows);
+            } catch (Exception e) {
+                log.error("超时未支付订单自动取消失败", e);
+                orderTimeoutQueue.requeue(ids);
+                return;
+            }
+        }
+    }
 
     /**
-     * 定时处理超时未支付订单的方法
+     * 兜底扫描超时未支付订单，处理延迟队列遗漏的订单（例如redis数据丢失）
      */
-    // @Scheduled(cron = "0 * * * * ?") // 每分钟的第 0 秒触发一次
+    @Scheduled(cron = "0 0/10 * * * ?") // 每10分钟触发一次
     public void processTimeoutOrder(){
         log.info("定时处理超时未支付订单:{}", LocalDateTime.now());
 
-        // 处理下单后超过15分钟未支付的订单，每分钟触发一次
-        LocalDateTime time = LocalDateTime.now().plusMinutes(-15); // 当前时间 - 15分钟
-        // select * from orders where status = ? and order_time < (当前时间 - 15分钟)
-        List<Orders> ordersList = orderMapper.getByStatusAndOrderTimeLT(Orders.PENDING_PAYMENT, time);
-        // 设置订单状态（已取消），取消原因，取消时间
-        if(ordersList !=null && ordersList.size()>0){
-            for (Orders orders : ordersList) {
-                orders.setStatus(Orders.CANCELLED);
-                orders.setCancelReason("订单超时，自动取消");
-                orders.setCancelTime(LocalDateTime.now());
-                orderMapper.update(orders);
-            }
+        // 处理下单后超过15分钟未支付的订单
+        LocalDateTime time = LocalDateTime.now().plusMinutes(-OrderTimeoutQueue.PAY_TIMEOUT_MINUTES);
+        // select id from orders where status = ? and order_time < (当前时间 - 15分钟)
+        List<Long> ids = orderMapper.getIdsByStatusAndOrderTimeLT(Orders.PENDING_PAYMENT, time);
+        if(ids != null && ids.size() > 0){
+            int rows = cancelTimeoutOrders(ids);
+            log.info("兜底取消超时未支付订单数：{}", rows);
         }
     }
 
+    /**
+     * 批量取消仍处于待付款状态的订单，已支付的订单不受影响
+     * @param ids
+     * @return 实际取消的订单数量
+     */
+    private int cancelTimeoutOrders(List<Long> ids){
+        Orders cancelOrders = Orders.builder()
+                .cancelReason("订单超时，自动取消")
+                .cancelTime(LocalDateTime.now())
+                .build();
+        return orderStateMachine.fireBatch(OrderEvent.TIMEOUT_CANCEL, cancelOrders, ids, Orders.PENDING_PAYMENT);
+    }
+
     /**
      * 定时处理处于派送中的订单
      */
@@ -52,8 +86,10 @@ public class OrderTask {
         List<Orders> ordersList = orderMapper.getByStatusAndOrderTimeLT(Orders.DELIVERY_IN_PROGRESS, time);
         if(ordersList !=null && ordersList.size()>0){
             for (Orders orders : ordersList) {
-                orders.setStatus(Orders.COMPLETED);
-                orderMapper.update(orders);
+                Orders completeOrders = Orders.builder()
+                        .id(orders.getId())
+                        .build();
+                orderStateMachine.fire(OrderEvent.COMPLETE, completeOrders);
             }
         }
     }
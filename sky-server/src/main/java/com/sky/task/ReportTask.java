@@ -0,0 +1,99 @@
+package com.sky.task;
+
+import com.sky.cache.RedisLock;
+import com.sky.mapper.DailyBusinessStatsMapper;
+import com.sky.properties.ReportRollupProperties;
+import com.sky.report.DailyStatsRollup;
+import com.sky.report.ExportJobManager;
+import com.sky.report.TodayBusinessCounter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * 报表数据汇总任务
+ */
+@Component
+@Slf4j
+public class ReportTask {
+
+    private static final String ROLLUP_LOCK = "report_rollup";
+
+    @Autowired
+    private DailyStatsRollup dailyStatsRollup;
+    @Autowired
+    private DailyBusinessStatsMapper dailyBusinessStatsMapper;
+    @Autowired
+    private TodayBusinessCounter todayBusinessCounter;
+    @Autowired
+    private ReportRollupProperties reportRollupProperties;
+    @Autowired
+    private ExportJobManager exportJobManager;
+    @Autowired
+    private RedisLock redisLock;
+
+    /**
+     * 启动完成后补齐汇总数据：汇总表为空时回填最近backfillDays天，否则从最后汇总的日期补到昨天
+     * 多个节点同时启动时只有获取到锁的节点执行
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void catchUp() {
+        if (!reportRollupProperties.isEnabled()) {
+            return;
+        }
+        try {
+            redisLock.runIfLocked(ROLLUP_LOCK, reportRollupProperties.getLockTimeout(), this::doCatchUp);
+        } catch (Exception e) {
+            log.error("补齐每日营业数据汇总失败", e);
+        }
+    }
+
+    private void doCatchUp() {
+        dailyStatsRollup.createTablesIfAbsent();
+
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        LocalDate latest = dailyBusinessStatsMapper.getLatestDate();
+        LocalDate begin = latest == null
+                ? yesterday.minusDays(reportRollupProperties.getBackfillDays() - 1)
+                : latest.minusDays(reportRollupProperties.getRecomputeDays() - 1);
+        dailyStatsRollup.rollup(begin, yesterday);
+    }
+
+    /**
+     * 每天汇总前一天的营业数据，同时重新计算最近几天，修正跨天完成的订单
+     * 每个节点都会触发，只有获取到锁的节点执行，避免并发删除和写入汇总表造成主键冲突
+     */
+    @Scheduled(cron = "#{@reportRollupProperties.cron}")
+    public void rollupDaily() {
+        if (!reportRollupProperties.isEnabled()) {
+            return;
+        }
+        redisLock.runIfLocked(ROLLUP_LOCK, reportRollupProperties.getLockTimeout(), () -> {
+            LocalDate yesterday = LocalDate.now().minusDays(1);
+            dailyStatsRollup.rollup(yesterday.minusDays(reportRollupProperties.getRecomputeDays() - 1), yesterday);
+        });
+    }
+
+    /**
+     * 定时根据数据库重建今日实时计数
+     */
+    @Scheduled(initialDelayString = "#{@reportRollupProperties.reconcileDelay}",
+            fixedDelayString = "#{@reportRollupProperties.reconcileDelay}")
+    public void reconcileToday() {
+        todayBusinessCounter.rebuild();
+    }
+
+    /**
+     * 定时删除过期的导出文件
+     */
+    @Scheduled(initialDelayString = "#{@exportJobProperties.cleanupDelay}",
+            fixedDelayString = "#{@exportJobProperties.cleanupDelay}")
+    public void cleanExportFiles() {
+        exportJobManager.cleanExpired();
+    }
+}
@@ -0,0 +1,46 @@
+package com.sky.task;
+
+import com.sky.properties.ShoppingCartProperties;
+import com.sky.service.impl.RedisShoppingCartServiceImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 购物车回写任务，仅在购物车使用redis存储时启用
+ */
+@Component
+@ConditionalOnProperty(prefix = "sky.shopping-cart", name = "storage", havingValue = "redis")
+@Slf4j
+public class ShoppingCartTask {
+
+    @Autowired
+    private RedisShoppingCartServiceImpl redisShoppingCartService;
+    @Autowired
+    private ShoppingCartProperties shoppingCartProperties;
+
+    /**
+     * 将redis中发生变更的购物车回写到数据库
+     */
+    @Scheduled(fixedDelayString = "#{@shoppingCartProperties.flushDelay}")
+    public void flushShoppingCart() {
+        int flushed = 0;
+        Long userId;
+        while (flushed < shoppingCartProperties.getFlushBatchSize()
+                && (userId = redisShoppingCartService.popDirtyUser()) != null) {
+            try {
+                redisShoppingCartService.flushToDb(userId);
+                flushed++;
+            } catch (Exception e) {
+                log.error("购物车回写数据库失败，userId：{}", userId, e);
+                redisShoppingCartService.markDirty(userId);
+                break;
+            }
+        }
+        if (flushed > 0) {
+            log.info("购物车回写数据库完成，用户数：{}", flushed);
+        }
+    }
+}
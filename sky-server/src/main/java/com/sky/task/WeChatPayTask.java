@@ -0,0 +1,31 @@
+package com.sky.task;
+
+import com.sky.utils.WeChatPayUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 微信支付证书轮换任务
+ */
+@Component
+@Slf4j
+public class WeChatPayTask {
+
+    @Autowired
+    private WeChatPayUtil weChatPayUtil;
+
+    /**
+     * 定时检查商户私钥和平台证书文件，替换后自动重新加载，无需重启
+     */
+    @Scheduled(initialDelayString = "#{@weChatProperties.certCheckDelay}",
+            fixedDelayString = "#{@weChatProperties.certCheckDelay}")
+    public void reloadCertificates() {
+        try {
+            weChatPayUtil.reloadIfChanged();
+        } catch (Exception e) {
+            log.error("重新加载微信支付证书失败，继续使用原证书", e);
+        }
+    }
+}
@@ -9,8 +9,8 @@ import javax.websocket.Session;
 import javax.websocket.server.PathParam;
 import javax.websocket.server.ServerEndpoint;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * WebSocket服务
@@ -20,7 +20,7 @@ import java.util.Map;
 public class WebSocketServer {
 
     //存放会话对象
-    private static Map<String, Session> sessionMap = new HashMap();
+    private static Map<String, Session> sessionMap = new ConcurrentHashMap<>();
 
     /**
      * 连接建立成功调用的方法
@@ -69,4 +69,13 @@ public class WebSocketServer {
         }
     }
 
+    /**
+     * 当前连接数
+     *
+     * @return
+     */
+    public static int getSessionCount() {
+        return sessionMap.size();
+    }
+
 }
@@ -0,0 +1,5 @@
+-- 用户端订单游标查询（OrderMapper.cursorQuery）使用的索引
+-- 按 user_id 定位后沿 (order_time, id) 倒序扫描，不需要额外排序；在线创建，不阻塞订单读写
+alter table orders
+    add index idx_user_order_time (user_id, order_time, id),
+    algorithm = inplace, lock = none;
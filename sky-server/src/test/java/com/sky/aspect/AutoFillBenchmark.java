@@ -0,0 +1,108 @@
+package com.sky.aspect;
+
+import com.sky.constant.AutoFillConstant;
+import com.sky.context.BaseContext;
+import com.sky.entity.Category;
+import com.sky.entity.Dish;
+import com.sky.entity.Employee;
+import com.sky.entity.Setmeal;
+import com.sky.enumeration.OperationType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Method;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 公共字段自动填充的耗时(纳秒)
+ * reflectionFill 为改造前每次调用都getDeclaredMethod查找setter并通过Method.invoke赋值，
+ * methodHandleFill 为改造后按实体类缓存MethodHandle的AutoFillAspect.fill
+ * 运行：在IDE中执行main方法，或 mvn test-compile 后以测试classpath运行本类
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AutoFillBenchmark {
+
+    @Param({"Dish", "Setmeal", "Category", "Employee"})
+    private String entityType;
+
+    @Param({"INSERT", "UPDATE"})
+    private OperationType operationType;
+
+    private Object entity;
+
+    @Setup
+    public void setUp() {
+        switch (entityType) {
+            case "Dish":
+                entity = new Dish();
+                break;
+            case "Setmeal":
+                entity = new Setmeal();
+                break;
+            case "Category":
+                entity = new Category();
+                break;
+            default:
+                entity = new Employee();
+        }
+        BaseContext.setCurrentId(1L);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BaseContext.removeCurrentId();
+    }
+
+    @Benchmark
+    public Object reflectionFill() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        Long currentId = BaseContext.getCurrentId();
+        if (operationType == OperationType.INSERT) {
+            Method setCreateTime = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_CREATE_TIME, LocalDateTime.class);
+            Method setCreateUser = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_CREATE_USER, Long.class);
+            Method setUpdateTime = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_TIME, LocalDateTime.class);
+            Method setUpdateUser = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_USER, Long.class);
+            setCreateTime.invoke(entity, now);
+            setCreateUser.invoke(entity, currentId);
+            setUpdateTime.invoke(entity, now);
+            setUpdateUser.invoke(entity, currentId);
+        } else {
+            Method setUpdateTime = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_TIME, LocalDateTime.class);
+            Method setUpdateUser = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_USER, Long.class);
+            setUpdateTime.invoke(entity, now);
+            setUpdateUser.invoke(entity, currentId);
+        }
+        return entity;
+    }
+
+    @Benchmark
+    public Object methodHandleFill() {
+        AutoFillAspect.fill(entity, operationType);
+        return entity;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AutoFillBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
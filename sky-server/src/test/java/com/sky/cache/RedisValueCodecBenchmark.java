@@ -0,0 +1,73 @@
+package com.sky.cache;
+
+import com.sky.properties.RedisCodecProperties;
+import com.sky.vo.DishVO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一个分类下30个菜品(每个菜品2个口味)的缓存值编解码耗时(微秒)，编码后的字节数在setUp中输出
+ * jdk 为改造前的JDK序列化，json 为带类型信息的json，json-deflate 为json再经deflate压缩
+ * 运行：在IDE中执行main方法，或 mvn test-compile 后以测试classpath运行本类
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisValueCodecBenchmark {
+
+    @Param({"jdk", "json", "json-deflate"})
+    private String format;
+
+    private RedisValueCodec codec;
+    private List<DishVO> dishes;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        RedisCodecProperties properties = new RedisCodecProperties();
+        properties.setFormat("jdk".equals(format) ? "jdk" : "json");
+        properties.setCompress("json-deflate".equals(format));
+        codec = new RedisValueCodec(properties, new SimpleMeterRegistry());
+
+        //MenuCache中缓存的是mapper查询返回的ArrayList
+        dishes = new ArrayList<>(RedisValueCodecTest.dishes(30));
+        bytes = codec.serialize(dishes);
+        System.out.printf("%n%s：%d字节%n", format, bytes.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return codec.serialize(dishes);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return codec.deserialize(bytes);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RedisValueCodecBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
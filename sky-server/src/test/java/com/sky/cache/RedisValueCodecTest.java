@@ -0,0 +1,113 @@
+package com.sky.cache;
+
+import com.sky.entity.DishFlavor;
+import com.sky.properties.RedisCodecProperties;
+import com.sky.vo.DishVO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 缓存值编解码往返测试，覆盖JDK不可变集合、压缩与不压缩、旧的JDK序列化数据以及不允许还原的类型
+ */
+class RedisValueCodecTest {
+
+    private final RedisValueCodec codec = codec(true);
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 2, 30})
+    void immutableListRoundTrip(int size) {
+        List<DishVO> dishes = dishes(size);
+
+        assertEquals(dishes, codec.deserialize(codec.serialize(dishes)));
+        assertEquals(dishes, codec(false).deserialize(codec(false).serialize(dishes)));
+    }
+
+    @Test
+    void wrappedListRoundTrip() {
+        List<DishVO> dishes = new ArrayList<>(dishes(3));
+
+        assertEquals(dishes, codec.deserialize(codec.serialize(Collections.unmodifiableList(dishes))));
+        assertEquals(dishes, codec.deserialize(codec.serialize(Arrays.asList(dishes.toArray()))));
+        assertEquals(dishes.subList(0, 1), codec.deserialize(codec.serialize(Collections.singletonList(dishes.get(0)))));
+        assertEquals(Collections.emptyList(), codec.deserialize(codec.serialize(Collections.emptyList())));
+    }
+
+    @Test
+    void singleValueRoundTrip() {
+        DishVO dish = dishes(1).get(0);
+
+        assertEquals(dish, codec.deserialize(codec.serialize(dish)));
+        assertEquals(1, codec.deserialize(codec.serialize(1)));
+        assertSame(NullValue.INSTANCE, codec.deserialize(codec.serialize(NullValue.INSTANCE)));
+    }
+
+    @Test
+    void readsJdkSerializedValue() {
+        List<DishVO> dishes = new ArrayList<>(dishes(2));
+        byte[] bytes = new JdkSerializationRedisSerializer().serialize(dishes);
+
+        assertEquals(dishes, codec.deserialize(bytes));
+    }
+
+    @Test
+    void rejectsTypeOutsideAllowedPackages() {
+        byte[] json = "[\"java.io.File\",\"/tmp\"]".getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = new byte[json.length + 1];
+        bytes[0] = 1;
+        System.arraycopy(json, 0, bytes, 1, json.length);
+
+        assertThrows(SerializationException.class, () -> codec.deserialize(bytes));
+    }
+
+    static RedisValueCodec codec(boolean compress) {
+        RedisCodecProperties properties = new RedisCodecProperties();
+        properties.setCompress(compress);
+        return new RedisValueCodec(properties, new SimpleMeterRegistry());
+    }
+
+    /**
+     * 一个分类下的菜品列表，与MenuCache缓存的内容相同，每个菜品带2个口味
+     *
+     * @param size
+     * @return
+     */
+    static List<DishVO> dishes(int size) {
+        List<DishVO> dishes = new ArrayList<>(size);
+        LocalDateTime updateTime = LocalDateTime.of(2022, 6, 1, 12, 30, 15);
+        for (long i = 1; i <= size; i++) {
+            List<DishFlavor> flavors = List.of(
+                    DishFlavor.builder().id(i * 10).dishId(i).name("辣度").value("[\"不辣\",\"微辣\",\"中辣\",\"重辣\"]").build(),
+                    DishFlavor.builder().id(i * 10 + 1).dishId(i).name("忌口").value("[\"不要葱\",\"不要蒜\",\"不要香菜\",\"不要辣\"]").build());
+            dishes.add(DishVO.builder()
+                    .id(i)
+                    .name("菜品" + i)
+                    .categoryId(11L)
+                    .price(new BigDecimal("38.00").add(BigDecimal.valueOf(i)))
+                    .image("https://sky-take-out.oss-cn-beijing.aliyuncs.com/" + i + "-dish.png")
+                    .description("精选食材现炒现做，口味鲜香")
+                    .status(1)
+                    .updateTime(updateTime)
+                    .categoryName("热菜")
+                    .flavors(flavors)
+                    .build());
+        }
+        return List.copyOf(dishes);
+    }
+}
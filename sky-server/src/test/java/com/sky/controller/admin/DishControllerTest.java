@@ -0,0 +1,69 @@
+package com.sky.controller.admin;
+
+import com.sky.cache.MenuCache;
+import com.sky.cache.SetmealItemCache;
+import com.sky.constant.StatusConstant;
+import com.sky.service.DishService;
+import com.sky.service.SetmealService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 菜品起售停售后清理的缓存
+ * 停售菜品会连带停售包含该菜品的套餐，这些套餐所属分类的套餐列表缓存也需要清理
+ */
+@ExtendWith(MockitoExtension.class)
+class DishControllerTest {
+
+    @Mock
+    private DishService dishService;
+    @Mock
+    private SetmealService setmealService;
+    @Mock
+    private MenuCache menuCache;
+    @Mock
+    private SetmealItemCache setmealItemCache;
+
+    @InjectMocks
+    private DishController dishController;
+
+    @Test
+    void stopSaleEvictsSetmealsContainingTheDish() {
+        List<Long> setmealIds = Arrays.asList(10L, 11L);
+        List<Long> setmealCategoryIds = Arrays.asList(3L, 4L);
+        when(dishService.updateStatus(StatusConstant.DISABLE, 1L)).thenReturn(setmealIds);
+        when(dishService.getCategoryIds(Collections.singletonList(1L))).thenReturn(Collections.singletonList(2L));
+        when(setmealService.getCategoryIds(setmealIds)).thenReturn(setmealCategoryIds);
+
+        dishController.updateStatus(StatusConstant.DISABLE, 1L);
+
+        verify(menuCache).evict(MenuCache.FAMILY_DISH, Collections.singletonList(2L));
+        verify(setmealItemCache).evictByDishIds(Collections.singletonList(1L));
+        verify(menuCache).evict(MenuCache.FAMILY_SETMEAL, setmealCategoryIds);
+    }
+
+    @Test
+    void startSaleLeavesSetmealCacheAlone() {
+        when(dishService.updateStatus(StatusConstant.ENABLE, 1L)).thenReturn(Collections.emptyList());
+        when(dishService.getCategoryIds(Collections.singletonList(1L))).thenReturn(Collections.singletonList(2L));
+
+        dishController.updateStatus(StatusConstant.ENABLE, 1L);
+
+        verify(menuCache).evict(MenuCache.FAMILY_DISH, Collections.singletonList(2L));
+        verify(setmealService, never()).getCategoryIds(anyList());
+        verify(menuCache, never()).evict(eq(MenuCache.FAMILY_SETMEAL), anyList());
+    }
+}
@@ -0,0 +1,73 @@
+package com.sky.interceptor;
+
+import com.sky.constant.JwtClaimsConstant;
+import com.sky.properties.JwtProperties;
+import com.sky.utils.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每次请求校验jwt令牌的耗时(微秒)
+ * parseJwt 为改造前每次请求都验签并解析claims，cachedParse 为同一令牌重复请求命中缓存
+ * 运行：在IDE中执行main方法，或 mvn test-compile 后以测试classpath运行本类
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtTokenCacheBenchmark {
+
+    private static final String SECRET_KEY = "itheima";
+
+    private String token;
+    private JwtTokenCache jwtTokenCache;
+
+    @Setup
+    public void setUp() {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(JwtClaimsConstant.USER_ID, 1L);
+        token = JwtUtil.createJWT(SECRET_KEY, TimeUnit.HOURS.toMillis(2), claims);
+
+        JwtProperties jwtProperties = new JwtProperties();
+        jwtProperties.setCacheMaxSize(10000);
+        jwtProperties.setCacheMaxTtl(TimeUnit.MINUTES.toMillis(10));
+        jwtTokenCache = new JwtTokenCache();
+        ReflectionTestUtils.setField(jwtTokenCache, "jwtProperties", jwtProperties);
+        jwtTokenCache.parse(SECRET_KEY, token);
+    }
+
+    @Benchmark
+    public Claims parseJwt() {
+        return JwtUtil.parseJWT(SECRET_KEY, token);
+    }
+
+    @Benchmark
+    public Claims cachedParse() {
+        return jwtTokenCache.parse(SECRET_KEY, token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtTokenCacheBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
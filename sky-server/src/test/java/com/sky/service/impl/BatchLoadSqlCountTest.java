@@ -0,0 +1,181 @@
+package com.sky.service.impl;
+
+import com.github.pagehelper.Page;
+import com.github.pagehelper.PageHelper;
+import com.sky.dto.OrdersPageQueryDTO;
+import com.sky.entity.Dish;
+import com.sky.entity.DishFlavor;
+import com.sky.entity.OrderDetail;
+import com.sky.entity.Orders;
+import com.sky.entity.SetmealDish;
+import com.sky.mapper.DishFlavorMapper;
+import com.sky.mapper.DishMapper;
+import com.sky.mapper.OrderDetailMapper;
+import com.sky.mapper.OrderMapper;
+import com.sky.mapper.SetmealDishMapper;
+import com.sky.result.PageResult;
+import com.sky.vo.DishItemVO;
+import com.sky.vo.DishVO;
+import com.sky.vo.OrderVO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+/**
+ * 统计订单列表、菜品列表、套餐菜品列表执行的sql语句数
+ * 每个mapper方法调用对应一条sql，批量加载后语句数与页面大小无关
+ */
+@ExtendWith(MockitoExtension.class)
+class BatchLoadSqlCountTest {
+
+    @Mock
+    private OrderMapper orderMapper;
+    @Mock
+    private OrderDetailMapper orderDetailMapper;
+    @Mock
+    private DishMapper dishMapper;
+    @Mock
+    private DishFlavorMapper dishFlavorMapper;
+    @Mock
+    private SetmealDishMapper setmealDishMapper;
+
+    @InjectMocks
+    private OrderServiceImpl orderService;
+    @InjectMocks
+    private DishServiceImpl dishService;
+    @InjectMocks
+    private SetmealServiceImpl setmealService;
+
+    @AfterEach
+    void clearPage() {
+        PageHelper.clearPage();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 50})
+    void pageQuery4UserIssuesTwoStatements(int pageSize) {
+        Page<Orders> page = ordersPage(pageSize);
+        when(orderMapper.pageQuery(any())).thenReturn(page);
+        when(orderDetailMapper.getByOrderIds(anyList())).thenReturn(orderDetails(page));
+
+        PageResult result = orderService.pageQuery4User(1, pageSize, null);
+
+        assertEquals(pageSize, result.getRecords().size());
+        OrderVO first = (OrderVO) result.getRecords().get(0);
+        assertEquals(2, first.getOrderDetailList().size());
+        assertEquals(2, sqlCount(orderMapper, orderDetailMapper));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 50})
+    void conditionSearchIssuesTwoStatements(int pageSize) {
+        Page<Orders> page = ordersPage(pageSize);
+        when(orderMapper.pageQuery(any())).thenReturn(page);
+        when(orderDetailMapper.getByOrderIds(anyList())).thenReturn(orderDetails(page));
+
+        OrdersPageQueryDTO ordersPageQueryDTO = new OrdersPageQueryDTO();
+        ordersPageQueryDTO.setPage(1);
+        ordersPageQueryDTO.setPageSize(pageSize);
+        PageResult result = orderService.conditionSearch(ordersPageQueryDTO);
+
+        OrderVO first = (OrderVO) result.getRecords().get(0);
+        assertEquals("宫保鸡丁*1;米饭*2;", first.getOrderDishes());
+        assertEquals(2, sqlCount(orderMapper, orderDetailMapper));
+    }
+
+    @Test
+    void emptyPageSkipsDetailQuery() {
+        when(orderMapper.pageQuery(any())).thenReturn(ordersPage(0));
+
+        orderService.pageQuery4User(1, 10, null);
+
+        assertEquals(1, sqlCount(orderMapper, orderDetailMapper));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 50})
+    void listWithFlavorIssuesTwoStatements(int dishCount) {
+        List<Dish> dishes = new ArrayList<>();
+        List<DishFlavor> flavors = new ArrayList<>();
+        for (long id = 1; id <= dishCount; id++) {
+            dishes.add(Dish.builder().id(id).name("菜品" + id).build());
+            flavors.add(DishFlavor.builder().dishId(id).name("辣度").value("[\"微辣\",\"中辣\"]").build());
+        }
+        when(dishMapper.list(any())).thenReturn(dishes);
+        when(dishFlavorMapper.getByDishIds(anyList())).thenReturn(flavors);
+
+        List<DishVO> result = dishService.listWithFlavor(new Dish());
+
+        assertEquals(dishCount, result.size());
+        assertEquals(1, result.get(0).getFlavors().size());
+        assertEquals(2, sqlCount(dishMapper, dishFlavorMapper));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 50})
+    void dishItemsBySetmealIdsIssuesTwoStatements(int setmealCount) {
+        List<Long> setmealIds = new ArrayList<>();
+        List<SetmealDish> setmealDishes = new ArrayList<>();
+        for (long id = 1; id <= setmealCount; id++) {
+            setmealIds.add(id);
+            setmealDishes.add(SetmealDish.builder().setmealId(id).dishId(1L).name("宫保鸡丁").copies(1).build());
+            setmealDishes.add(SetmealDish.builder().setmealId(id).dishId(2L).name("米饭").copies(2).build());
+        }
+        when(setmealDishMapper.getBySetmealIds(setmealIds)).thenReturn(setmealDishes);
+        when(dishMapper.getByIds(anyList())).thenReturn(Arrays.asList(
+                Dish.builder().id(1L).image("1.png").build(),
+                Dish.builder().id(2L).image("2.png").build()));
+
+        Map<Long, List<DishItemVO>> result = setmealService.getDishItemsBySetmealIds(setmealIds);
+
+        assertEquals(setmealCount, result.size());
+        assertEquals("2.png", result.get(1L).get(1).getImage());
+        assertEquals(2, sqlCount(setmealDishMapper, dishMapper));
+    }
+
+    private Page<Orders> ordersPage(int size) {
+        Page<Orders> page = new Page<>(1, Math.max(size, 1));
+        for (long id = 1; id <= size; id++) {
+            page.add(Orders.builder().id(id).number(String.valueOf(id)).build());
+        }
+        page.setTotal(size);
+        return page;
+    }
+
+    private List<OrderDetail> orderDetails(List<Orders> ordersList) {
+        List<OrderDetail> orderDetails = new ArrayList<>();
+        for (Orders orders : ordersList) {
+            orderDetails.addAll(Arrays.asList(
+                    OrderDetail.builder().orderId(orders.getId()).name("宫保鸡丁").number(1).build(),
+                    OrderDetail.builder().orderId(orders.getId()).name("米饭").number(2).build()));
+        }
+        return orderDetails;
+    }
+
+    /**
+     * 统计mapper方法的调用次数，即执行的sql语句数
+     */
+    private int sqlCount(Object... mappers) {
+        int count = 0;
+        for (Object mapper : mappers) {
+            count += Mockito.mockingDetails(mapper).getInvocations().size();
+        }
+        return count;
+    }
+}